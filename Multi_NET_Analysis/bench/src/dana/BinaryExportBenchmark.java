@@ -0,0 +1,103 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares writing a sample's per-image .csv output against writing
+ * the same results to Results.dana. The sizes written are printed
+ * once in setup.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryExportBenchmark {
+
+	//images x ROIs per image
+	@Param({"20x10000"})
+	public String shape;
+
+	File input;
+	File output;
+	List<Matrix> allFiles;
+	File binary;
+
+
+
+
+	@Setup
+	public void setup() throws IOException {
+		int[] size = SyntheticSample.parseShape(shape);
+		input = SyntheticSample.write(size[0], size[1], 42);
+		output = Files.createTempDirectory("dana-out").toFile();
+		allFiles = new ArrayList<Matrix>();
+		for (File in: input.listFiles()) {
+			Matrix m = new Matrix(in, in.getName(), in.getName().startsWith("LPS"));
+			m.findOutliers(SyntheticSample.LOWER, 250000.0);
+			m.update(50.0, 3.0, 4.0, 5.0, 6.0, 4.7, true, null);
+			allFiles.add(m);
+		}
+		binary = new File(output, BinaryExport.FILE_NAME);
+
+		csv();
+		binary();
+		long csvBytes = 0;
+		for (Matrix m: allFiles) {
+			csvBytes += new File(output, m.getName()).length();
+		}
+		System.out.printf("%nCSV %.2f MB, Binary %.2f MB%n",
+				csvBytes / (double) (1 << 20), binary.length() / (double) (1 << 20));
+	}
+
+
+
+
+	@TearDown
+	public void tearDown() {
+		SyntheticSample.delete(input);
+		SyntheticSample.delete(output);
+	}
+
+
+
+
+	@Benchmark
+	public void csv() throws IOException {
+		String directory = output.getPath() + File.separator;
+		for (Matrix m: allFiles) {
+			m.createCSV(directory);
+		}
+	}
+
+
+
+
+	@Benchmark
+	public void binary() throws IOException {
+		BinaryExport.write(allFiles, 50.0, 4.7, binary);
+	}
+}
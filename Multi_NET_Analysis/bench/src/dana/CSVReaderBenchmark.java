@@ -0,0 +1,191 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares the throughput of CSVReader, with files memory mapped and
+ * read through a buffer, against the Scanner loop Matrix previously
+ * used to read DANA_I .csv files.
+ *
+ * Each operation reads every file of the sample once. Besides
+ * operations per second, the bytes result is the number of input bytes
+ * read per second, so divided by 10^6 it is the MB/s of each path,
+ * comparable across shapes.
+ *
+ * A synthetic row is about 66 bytes, so files under CSVReader.MAP_MIN
+ * (about 16,000 rows) are read through the buffer even when mapping is
+ * asked for. 200x1000 (66 KB files) is never mapped; 20x20000 (1.3 MB),
+ * 8x40000 (2.7 MB) and 1x100000 (6.6 MB) are.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVReaderBenchmark {
+
+	//files x ROIs per file
+	@Param({"200x1000", "20x20000", "8x40000", "1x100000"})
+	public String shape;
+
+	File input;
+	File[] csvs;
+	long length;	//bytes in all the files
+
+
+
+
+	/**
+	 * Input bytes read, reported per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Bytes {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+
+
+
+	@Setup
+	public void setup() throws IOException {
+		int[] size = SyntheticSample.parseShape(shape);
+		input = SyntheticSample.write(size[0], size[1], 42);
+		csvs = input.listFiles();
+		length = 0;
+		for (File f: csvs) {
+			length += f.length();
+		}
+	}
+
+
+
+
+	@TearDown
+	public void tearDown() {
+		SyntheticSample.delete(input);
+	}
+
+
+
+
+	@Benchmark
+	public double scanner(Bytes read) throws IOException {
+		double check = 0;
+		for (File f: csvs) {
+			check += readScanner(f);
+		}
+		read.bytes += length;
+		return check;
+	}
+
+
+
+
+	@Benchmark
+	public double buffered(Bytes read) throws IOException {
+		double check = 0;
+		for (File f: csvs) {
+			check += readCSVReader(f, false);
+		}
+		read.bytes += length;
+		return check;
+	}
+
+
+
+
+	@Benchmark
+	public double mapped(Bytes read) throws IOException {
+		double check = 0;
+		for (File f: csvs) {
+			check += readCSVReader(f, true);
+		}
+		read.bytes += length;
+		return check;
+	}
+
+
+
+
+	/**
+	 * Reads a file the way Matrix did before CSVReader.
+	 *
+	 * @return sum of all values
+	 */
+	private static double readScanner(File f) throws IOException {
+		ArrayList<Double> values = new ArrayList<Double>();
+		Scanner scanner = new Scanner(f);
+		scanner.useDelimiter(",|\\n");
+		try {
+			for (int k=0; k<11; k++){
+				scanner.next().trim();
+			}
+			while (scanner.hasNextLine()){
+				for (int x=0; x<11; x++) {
+					values.add(Double.parseDouble(scanner.next()));
+				}
+			}
+		} catch(NoSuchElementException e){}
+		scanner.close();
+
+		double sum = 0;
+		for (Double d: values) {
+			sum += d;
+		}
+		return sum;
+	}
+
+
+
+
+	/**
+	 * Reads a file with CSVReader.
+	 *
+	 * @param map - whether to memory map the file
+	 * @return sum of all values
+	 */
+	private static double readCSVReader(File f, boolean map) throws IOException {
+		double sum = 0;
+		try (CSVReader reader = new CSVReader(f, map)) {
+			reader.readLabels(11);
+			double[] row = new double[11];
+			while (reader.readRow(row)) {
+				for (double d: row) {
+					sum += d;
+				}
+			}
+		}
+		return sum;
+	}
+}
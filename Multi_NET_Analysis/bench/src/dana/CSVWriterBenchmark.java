@@ -0,0 +1,136 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares Matrix.createCSV against the StringBuilder and PrintWriter
+ * code it previously used, writing the same image.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVWriterBenchmark {
+
+	@Param({"10000"})
+	public int rows;
+
+	File dir;
+	Matrix m;
+	File out;
+
+
+
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("dana-out").toFile();
+		File in = new File(dir, "image.csv");
+		SyntheticSample.write(in, rows, new Random(42));
+		m = new Matrix(in, "out.csv", false);
+		in.delete();
+		m.findOutliers(SyntheticSample.LOWER, 250000.0);
+		m.update(50.0, 3.0, 4.0, 5.0, 6.0, 4.7, true, null);
+		out = new File(dir, "out.csv");
+	}
+
+
+
+
+	@TearDown
+	public void tearDown() {
+		SyntheticSample.delete(dir);
+	}
+
+
+
+
+	@Benchmark
+	public void stringBuilder() throws IOException {
+		writeLegacy(m, out);
+	}
+
+
+
+
+	@Benchmark
+	public void csvWriter() throws IOException {
+		m.createCSV(dir.getPath() + File.separator);
+	}
+
+
+
+
+	/**
+	 * The previous createCSV, building the whole file in memory.
+	 */
+	static void writeLegacy(Matrix m, File file) throws IOException {
+		PrintWriter pw = new PrintWriter(file);
+		StringBuilder sb = new StringBuilder();
+		for(int num=0; num<14; num++){
+			sb.append(m.labels[num] + ",");
+		}
+		sb.append('\n');
+		for (int row=0; row<29; row++){
+			for(int col=0; col<16; col++){
+				if (col>14){
+					sb.append(m.newLabels[row+1] + ",");
+					if (m.averages[row+1] != null){
+						sb.append(m.averages[row+1] + ",");
+					}
+					else {
+						sb.append(" ,");
+					}
+				}
+				else if (col == 13){
+					sb.append((row < m.numCells ? m.classification(row) : " ") + ",");
+				}
+				else {
+					double value = row < m.numCells && col < Matrix.COLUMNS ? m.columns[col][row] : Double.NaN;
+					sb.append(Double.isNaN(value) ? "," : value + ",");
+				}
+			}
+			sb.append('\n');
+		}
+		for (int nRow=29; nRow<m.numCells; nRow++){
+			for(int col=0; col<14; col++){
+				if (col == 13) {
+					sb.append(m.classification(nRow) + ",");
+				}
+				else if (Double.isNaN(m.columns[col][nRow])){
+					sb.append("" + ",");
+				}
+				else {
+					sb.append(m.columns[col][nRow] + ",");
+				}
+			}
+			sb.append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+}
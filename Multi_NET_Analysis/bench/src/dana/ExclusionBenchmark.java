@@ -0,0 +1,111 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Times finding the upper RID cutoff with each exclusion strategy,
+ * sketching every file each time for the strategies that use a
+ * sketch, against sorting the pooled RIDs for exact quantiles.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExclusionBenchmark {
+
+	//files x ROIs per file
+	@Param({"1x100000", "1000x100"})
+	public String shape;
+
+	//name of the exclusion strategy
+	@Param({"meansd", "mad", "iqr"})
+	public String exclusion;
+
+	File input;
+	Multi_NET_Analysis engine;
+	List<Matrix> allFiles;
+
+
+
+
+	@Setup
+	public void setup() throws IOException {
+		int[] size = SyntheticSample.parseShape(shape);
+		input = SyntheticSample.write(size[0], size[1], 42);
+		engine = new Multi_NET_Analysis(SyntheticSample.config()
+				.withExclusion(ExclusionStrategy.forName(exclusion)));
+		allFiles = new ArrayList<Matrix>();
+		for (Path f: engine.inputFiles(input.getPath(), null).list()) {
+			allFiles.add(engine.read(f.toFile()));
+		}
+	}
+
+
+
+
+	@TearDown
+	public void tearDown() {
+		SyntheticSample.delete(input);
+	}
+
+
+
+
+	/**
+	 * Sketches every file and finds the cutoff from the merged sketches.
+	 */
+	@Benchmark
+	public double findCutoffs() {
+		for (Matrix m: allFiles) {
+			m.ridSketch = null;
+		}
+		return engine.findCutoffs(allFiles);
+	}
+
+
+
+
+	/**
+	 * Pools and sorts every RID, as exact quantiles would need.
+	 */
+	@Benchmark
+	public double sort() {
+		int total = 0;
+		for (Matrix m: allFiles) {
+			total += m.getNumCells();
+		}
+		double[] RID = new double[total];
+		int pos = 0;
+		for (Matrix m: allFiles) {
+			System.arraycopy(m.columns[7], 0, RID, pos, m.getNumCells());
+			pos += m.getNumCells();
+		}
+		Arrays.sort(RID);
+		return RID[(total - 1) / 2];
+	}
+}
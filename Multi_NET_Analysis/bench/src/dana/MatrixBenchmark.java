@@ -0,0 +1,184 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Times each stage of Multi_NET_Analysis on one thread, on synthetic
+ * samples from a single large image to many small ones. Each benchmark
+ * processes the whole sample once, so dividing by the ROIs in the
+ * shape gives the cost per ROI.
+ *
+ * Other shapes can be given on the JMH command line, e.g.
+ * -p shape=10000x100
+ *
+ * @author Ryan Rebernick
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatrixBenchmark {
+
+	//files x ROIs per file
+	@Param({"1x10", "1x100000", "100x1000", "1000x100", "10000x10"})
+	public String shape;
+
+	File input;				//synthetic DANA_I files
+	File output;			//where createCSV and totalCSV write
+	Multi_NET_Analysis engine;
+	List<Path> files;
+	List<Matrix> allFiles;	//files read, screened and updated once in setup
+	double upperCutoff;
+	double average;			//area the relative areas are normalized to
+	int fragments;
+
+
+
+
+	@Setup
+	public void setup() throws IOException {
+		int[] size = SyntheticSample.parseShape(shape);
+		input = SyntheticSample.write(size[0], size[1], 42);
+		output = Files.createTempDirectory("dana-out").toFile();
+		engine = new Multi_NET_Analysis(SyntheticSample.config());
+		files = engine.inputFiles(input.getPath(), null).list();
+
+		allFiles = new ArrayList<Matrix>();
+		for (Path f: files) {
+			allFiles.add(engine.read(f.toFile()));
+		}
+		upperCutoff = engine.findCutoffs(allFiles);
+		fragments = findOutliers();
+		average = normalize();
+		update();
+	}
+
+
+
+
+	@TearDown
+	public void tearDown() {
+		SyntheticSample.delete(input);
+		SyntheticSample.delete(output);
+	}
+
+
+
+
+	/**
+	 * Parses every file into a Matrix.
+	 */
+	@Benchmark
+	public List<Matrix> parse() throws IOException {
+		List<Matrix> read = new ArrayList<Matrix>(files.size());
+		for (Path f: files) {
+			read.add(engine.read(f.toFile()));
+		}
+		return read;
+	}
+
+
+
+
+	@Benchmark
+	public double findCutoffs() {
+		return engine.findCutoffs(allFiles);
+	}
+
+
+
+
+	@Benchmark
+	public int findOutliers() {
+		int frags = 0;
+		for (Matrix m: allFiles) {
+			frags += m.findOutliers(SyntheticSample.LOWER, upperCutoff);
+		}
+		return frags;
+	}
+
+
+
+
+	/**
+	 * Finds the smallest areas of each file and averages them.
+	 */
+	@Benchmark
+	public double normalize() {
+		SmallestValues[] smallest = new SmallestValues[allFiles.size()];
+		for (int i=0; i<smallest.length; i++) {
+			smallest[i] = allFiles.get(i).smallestAreas(engine.config.getSmallest());
+		}
+		return Multi_NET_Analysis.normalize(smallest, engine.config.getSmallest());
+	}
+
+
+
+
+	@Benchmark
+	public void update() {
+		AnalysisConfig c = engine.config;
+		for (Matrix m: allFiles) {
+			m.update(average, c.getCDcutoff1(), c.getCDcutoff2(), c.getCDcutoff3(), c.getCDcutoff4(), c.getNETcutoff(),
+					c.isRelative(), c.getAbsArea());
+		}
+	}
+
+
+
+
+	/**
+	 * Updates every file while counting its histograms, for the cost
+	 * of Histograms.csv over update.
+	 */
+	@Benchmark
+	public void updateWithHistograms() {
+		AnalysisConfig c = engine.config;
+		for (Matrix m: allFiles) {
+			m.update(average, c.getCDcutoff1(), c.getCDcutoff2(), c.getCDcutoff3(), c.getCDcutoff4(), c.getNETcutoff(),
+					c.isRelative(), c.getAbsArea(), true);
+		}
+	}
+
+
+
+
+	@Benchmark
+	public void createCSV() throws IOException {
+		String directory = output.getPath() + File.separator;
+		for (Matrix m: allFiles) {
+			m.createCSV(directory);
+		}
+	}
+
+
+
+
+	@Benchmark
+	public SampleSummary totalCSV() throws IOException {
+		return engine.totalCSV(allFiles, fragments, output);
+	}
+}
@@ -0,0 +1,117 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+
+/**
+ * Writes synthetic DANA_I .csv files for the benchmarks. Areas are
+ * log-normal around 90 um^2 and the RID grows with the area, so the
+ * default cutoffs exclude a realistic share of fragments and multiples.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class SyntheticSample {
+
+	//cutoffs the benchmarks analyze the samples with
+	static final double UPPER = 1.5;
+	static final double LOWER = 20000.0;
+
+	private SyntheticSample() {
+	}
+
+
+
+
+	/**
+	 * Writes a sample of several images to a new temporary folder.
+	 * Every other image is named as a treatment (LPS).
+	 *
+	 * @param files - number of images
+	 * @param rows - ROIs per image
+	 * @param seed - seed of the values
+	 * @return the folder
+	 * @throws IOException
+	 */
+	static File write(int files, int rows, long seed) throws IOException {
+		File dir = Files.createTempDirectory("dana-bench").toFile();
+		Random random = new Random(seed);
+		for (int f=0; f<files; f++) {
+			write(new File(dir, (f % 2 == 0 ? "CTRL_" : "LPS_") + f + ".csv"), rows, random);
+		}
+		return dir;
+	}
+
+
+
+
+	/**
+	 * @param shape - files and rows per file written as "files x rows", e.g. "100x1000"
+	 * @return the number of files and rows
+	 */
+	static int[] parseShape(String shape) {
+		String[] parts = shape.split("x");
+		return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+	}
+
+
+
+
+	/**
+	 * @return a config analyzing on the benchmark thread with the DANA window defaults
+	 */
+	static AnalysisConfig config() {
+		return new AnalysisConfig(UPPER, LOWER, 3.0, 4.0, 5.0, 6.0, 4.7, "LPS", true, null).withWorkers(1);
+	}
+
+
+
+
+	/**
+	 * Writes a synthetic DANA_I .csv file.
+	 */
+	static void write(File f, int rows, Random random) throws IOException {
+		PrintWriter pw = new PrintWriter(f);
+		StringBuilder sb = new StringBuilder();
+		sb.append(" ,Area,Mean,Min,Max,Circ.,IntDen,RawIntDen,AR,Round,Solidity\n");
+		for (int r=1; r<=rows; r++) {
+			double area = Math.exp(4.5 + 0.6*random.nextGaussian());
+			double mean = 20 + 180*random.nextDouble();
+			sb.append(r).append(',')
+			.append(Math.round(area*1000)/1000.0).append(',')
+			.append(Math.round(mean*1000)/1000.0).append(',')
+			.append(random.nextInt(20)).append(',')
+			.append(255).append(',')
+			.append(Math.round(random.nextDouble()*1000)/1000.0).append(',')
+			.append(Math.round(area*mean*1000)/1000.0).append(',')
+			.append(Math.round(area*mean*(5 + 10*random.nextDouble()))).append(',')
+			.append(Math.round((1 + random.nextDouble())*1000)/1000.0).append(',')
+			.append(Math.round(random.nextDouble()*1000)/1000.0).append(',')
+			.append(Math.round(random.nextDouble()*1000)/1000.0).append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+
+
+
+
+	/**
+	 * Removes a folder written by write() and everything in it.
+	 *
+	 * @param dir - the folder
+	 */
+	static void delete(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f: files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,571 @@
+package dana;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+
+
+/**
+ * The user parameters for one DANA analysis. Fields are never changed
+ * once a config is created, so a single config can be shared by any
+ * number of analyses running at once. Optional parameters are set with
+ * the with...() methods, which return a modified copy.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public final class AnalysisConfig {
+
+	private final Double upperCutoff;			//upper cutoff in SDs above the mean RID
+	private final Double lowerCutoff;			//lower cutoff value (minimum RID)
+	private final Double CDcutoff1;				//DNA decondensation cutoff 1
+	private final Double CDcutoff2;				//DNA decondensation cutoff 2
+	private final Double CDcutoff3;				//DNA decondensation cutoff 3
+	private final Double CDcutoff4;				//DNA decondensation cutoff 4
+	private final Double NETcutoff;				//relative area at or above which a ROI is a NET
+	private final String treatment;				//optional parameter separating treated files
+	private final boolean useRelative;			//normalize to the smallest non-outlier ROIs
+	private final int smallest;					//number of smallest ROIs averaged to normalize
+	private final Double absArea;				//set area to normalize to if not relative
+	private final int workers;					//number of files processed at once
+	private final File cacheDirectory;			//where parsed files are kept between runs, null if not kept
+	private final boolean binaryOutput;			//also write Results.dana
+	private final boolean streaming;			//read the files twice instead of holding them all
+	private final SampleGroups groups;			//groups summarized in Groups.csv, null if not written
+	private final boolean report;				//also write Run_Report.csv
+	private final String inputGlob;				//pattern the names of input files match
+	private final boolean recursive;			//also read the folders below the input directory
+	private final ExclusionStrategy exclusion;	//how the upper RID cutoff is found
+	private final boolean perImageCutoffs;		//also classify each image with cutoffs from its own RIDs
+	private final boolean histograms;			//also write Histograms.csv
+
+
+
+
+	/**
+	 * @param upper - upper elimination cutoff parameter
+	 * @param lower - lower cutoff value
+	 * @param CD1 - DNA decondensation cutoff 1
+	 * @param CD2 - DNA decondensation cutoff 2
+	 * @param CD3 - DNA decondensation cutoff 3
+	 * @param CD4 - DNA decondensation cutoff 4
+	 * @param Net - NET cutoff
+	 * @param oParam - Optional parameter
+	 * @param uRelative - computing area relative to 5
+	 * 						smallest non-outlier ROIs
+	 * @param area - set area user may choose to normalize to
+	 */
+	public AnalysisConfig(Double upper, Double lower, Double CD1, Double CD2, Double CD3,
+			Double CD4, Double Net, String oParam, boolean uRelative, Double area) {
+		upperCutoff = upper;
+		lowerCutoff = lower;
+		CDcutoff1 = CD1;
+		CDcutoff2 = CD2;
+		CDcutoff3 = CD3;
+		CDcutoff4 = CD4;
+		NETcutoff = Net;
+		treatment = oParam;
+		useRelative = uRelative;
+		absArea = area;
+		workers = Runtime.getRuntime().availableProcessors();
+		smallest = 5;
+		inputGlob = InputFiles.DEFAULT_GLOB;
+		exclusion = ExclusionStrategy.MEAN_SD;
+		cacheDirectory = null;
+		binaryOutput = false;
+		streaming = false;
+		groups = null;
+		report = false;
+		recursive = false;
+		perImageCutoffs = false;
+		histograms = false;
+	}
+
+
+
+
+	/**
+	 * The fields of a config, copied from one and changed by a
+	 * with...() method before the new config is made from them.
+	 */
+	private static final class Builder {
+		Double upperCutoff;
+		Double lowerCutoff;
+		Double CDcutoff1;
+		Double CDcutoff2;
+		Double CDcutoff3;
+		Double CDcutoff4;
+		Double NETcutoff;
+		String treatment;
+		boolean useRelative;
+		int smallest;
+		Double absArea;
+		int workers;
+		File cacheDirectory;
+		boolean binaryOutput;
+		boolean streaming;
+		SampleGroups groups;
+		boolean report;
+		String inputGlob;
+		boolean recursive;
+		ExclusionStrategy exclusion;
+		boolean perImageCutoffs;
+		boolean histograms;
+
+
+
+
+		Builder(AnalysisConfig c) {
+			upperCutoff = c.upperCutoff;
+			lowerCutoff = c.lowerCutoff;
+			CDcutoff1 = c.CDcutoff1;
+			CDcutoff2 = c.CDcutoff2;
+			CDcutoff3 = c.CDcutoff3;
+			CDcutoff4 = c.CDcutoff4;
+			NETcutoff = c.NETcutoff;
+			treatment = c.treatment;
+			useRelative = c.useRelative;
+			smallest = c.smallest;
+			absArea = c.absArea;
+			workers = c.workers;
+			cacheDirectory = c.cacheDirectory;
+			binaryOutput = c.binaryOutput;
+			streaming = c.streaming;
+			groups = c.groups;
+			report = c.report;
+			inputGlob = c.inputGlob;
+			recursive = c.recursive;
+			exclusion = c.exclusion;
+			perImageCutoffs = c.perImageCutoffs;
+			histograms = c.histograms;
+		}
+	}
+
+
+
+
+	/**
+	 * @param b - every field of the new config
+	 */
+	private AnalysisConfig(Builder b) {
+		upperCutoff = b.upperCutoff;
+		lowerCutoff = b.lowerCutoff;
+		CDcutoff1 = b.CDcutoff1;
+		CDcutoff2 = b.CDcutoff2;
+		CDcutoff3 = b.CDcutoff3;
+		CDcutoff4 = b.CDcutoff4;
+		NETcutoff = b.NETcutoff;
+		treatment = b.treatment;
+		useRelative = b.useRelative;
+		smallest = b.smallest;
+		absArea = b.absArea;
+		workers = b.workers;
+		cacheDirectory = b.cacheDirectory;
+		binaryOutput = b.binaryOutput;
+		streaming = b.streaming;
+		groups = b.groups;
+		report = b.report;
+		inputGlob = b.inputGlob;
+		recursive = b.recursive;
+		exclusion = b.exclusion;
+		perImageCutoffs = b.perImageCutoffs;
+		histograms = b.histograms;
+	}
+
+
+
+
+	/**
+	 * @param numWorkers - number of files processed at once
+	 * @return a copy of this config using that many threads
+	 */
+	public AnalysisConfig withWorkers(int numWorkers) {
+		Builder b = new Builder(this);
+		b.workers = Math.max(1, numWorkers);
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param k - number of smallest non-outlier ROIs to normalize to
+	 * @return a copy of this config averaging that many ROIs
+	 */
+	public AnalysisConfig withSmallest(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one ROI is needed to normalize to: " + k);
+		}
+		Builder b = new Builder(this);
+		b.smallest = k;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param upper - upper elimination cutoff parameter
+	 * @param lower - lower cutoff value
+	 * @param CD1 - DNA decondensation cutoff 1
+	 * @param CD2 - DNA decondensation cutoff 2
+	 * @param CD3 - DNA decondensation cutoff 3
+	 * @param CD4 - DNA decondensation cutoff 4
+	 * @param Net - NET cutoff
+	 * @return a copy of this config using those cutoffs
+	 */
+	public AnalysisConfig withCutoffs(Double upper, Double lower, Double CD1, Double CD2,
+			Double CD3, Double CD4, Double Net) {
+		Builder b = new Builder(this);
+		b.upperCutoff = upper;
+		b.lowerCutoff = lower;
+		b.CDcutoff1 = CD1;
+		b.CDcutoff2 = CD2;
+		b.CDcutoff3 = CD3;
+		b.CDcutoff4 = CD4;
+		b.NETcutoff = Net;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param directory - folder to keep parsed files in, null to parse every file
+	 * @return a copy of this config reusing files that have not changed since the last run
+	 */
+	public AnalysisConfig withCache(File directory) {
+		Builder b = new Builder(this);
+		b.cacheDirectory = directory;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param binary - whether to also write the results to Results.dana
+	 * @return a copy of this config with the binary export on or off
+	 */
+	public AnalysisConfig withBinaryOutput(boolean binary) {
+		Builder b = new Builder(this);
+		b.binaryOutput = binary;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param stream - whether to read the files twice, holding only the
+	 * 					files being processed, instead of holding them all
+	 * @return a copy of this config with streaming on or off
+	 */
+	public AnalysisConfig withStreaming(boolean stream) {
+		Builder b = new Builder(this);
+		b.streaming = stream;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param g - groups to split the images into, null for none
+	 * @return a copy of this config also summarizing each group in Groups.csv
+	 */
+	public AnalysisConfig withGroups(SampleGroups g) {
+		Builder b = new Builder(this);
+		b.groups = g;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param on - whether to time each stage of the run
+	 * @return a copy of this config also writing Run_Report.csv
+	 */
+	public AnalysisConfig withReport(boolean on) {
+		Builder b = new Builder(this);
+		b.report = on;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param glob - pattern the names of input files match, e.g. "*_DAPI.csv"
+	 * @param r - whether to also read the folders below the input directory
+	 * @return a copy of this config finding its input files that way
+	 * @throws IllegalArgumentException if the glob is not valid
+	 */
+	public AnalysisConfig withInputs(String glob, boolean r) {
+		//fails now rather than once the analysis has started
+		FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		Builder b = new Builder(this);
+		b.inputGlob = glob;
+		b.recursive = r;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param strategy - how the upper RID cutoff is found from the RIDs of the sample
+	 * @return a copy of this config excluding multiples that way
+	 */
+	public AnalysisConfig withExclusion(ExclusionStrategy strategy) {
+		Builder b = new Builder(this);
+		b.exclusion = strategy;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param on - whether to also classify each image with cutoffs from its own RIDs
+	 * @return a copy of this config also writing the per-image results and Cutoff_Comparison.csv
+	 */
+	public AnalysisConfig withPerImageCutoffs(boolean on) {
+		Builder b = new Builder(this);
+		b.perImageCutoffs = on;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @param on - whether to count histograms of the relative areas and RIDs
+	 * @return a copy of this config also writing Histograms.csv
+	 */
+	public AnalysisConfig withHistograms(boolean on) {
+		Builder b = new Builder(this);
+		b.histograms = on;
+		return new AnalysisConfig(b);
+	}
+
+
+
+
+	/**
+	 * @return upper cutoff in SDs above the mean RID
+	 */
+	public Double getUpperCutoff() {
+		return upperCutoff;
+	}
+
+
+
+
+	/**
+	 * @return lower cutoff value (minimum RID)
+	 */
+	public Double getLowerCutoff() {
+		return lowerCutoff;
+	}
+
+
+
+
+	/**
+	 * @return DNA decondensation cutoff 1
+	 */
+	public Double getCDcutoff1() {
+		return CDcutoff1;
+	}
+
+
+
+
+	/**
+	 * @return DNA decondensation cutoff 2
+	 */
+	public Double getCDcutoff2() {
+		return CDcutoff2;
+	}
+
+
+
+
+	/**
+	 * @return DNA decondensation cutoff 3
+	 */
+	public Double getCDcutoff3() {
+		return CDcutoff3;
+	}
+
+
+
+
+	/**
+	 * @return DNA decondensation cutoff 4
+	 */
+	public Double getCDcutoff4() {
+		return CDcutoff4;
+	}
+
+
+
+
+	/**
+	 * @return relative area at or above which a ROI is a NET
+	 */
+	public Double getNETcutoff() {
+		return NETcutoff;
+	}
+
+
+
+
+	/**
+	 * @return optional parameter separating treated files
+	 */
+	public String getTreatment() {
+		return treatment;
+	}
+
+
+
+
+	/**
+	 * @return whether to normalize to the smallest non-outlier ROIs
+	 */
+	public boolean isRelative() {
+		return useRelative;
+	}
+
+
+
+
+	/**
+	 * @return number of smallest ROIs averaged to normalize
+	 */
+	public int getSmallest() {
+		return smallest;
+	}
+
+
+
+
+	/**
+	 * @return set area to normalize to if not relative
+	 */
+	public Double getAbsArea() {
+		return absArea;
+	}
+
+
+
+
+	/**
+	 * @return number of files processed at once
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+
+
+
+	/**
+	 * @return where parsed files are kept between runs, null if not kept
+	 */
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+
+
+
+	/**
+	 * @return whether to also write Results.dana
+	 */
+	public boolean isBinaryOutput() {
+		return binaryOutput;
+	}
+
+
+
+
+	/**
+	 * @return whether to read the files twice instead of holding them all
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+
+
+
+	/**
+	 * @return groups summarized in Groups.csv, null if not written
+	 */
+	public SampleGroups getGroups() {
+		return groups;
+	}
+
+
+
+
+	/**
+	 * @return whether to also write Run_Report.csv
+	 */
+	public boolean isReport() {
+		return report;
+	}
+
+
+
+
+	/**
+	 * @return pattern the names of input files match
+	 */
+	public String getInputGlob() {
+		return inputGlob;
+	}
+
+
+
+
+	/**
+	 * @return whether to also read the folders below the input directory
+	 */
+	public boolean isRecursive() {
+		return recursive;
+	}
+
+
+
+
+	/**
+	 * @return how the upper RID cutoff is found
+	 */
+	public ExclusionStrategy getExclusion() {
+		return exclusion;
+	}
+
+
+
+
+	/**
+	 * @return whether to also classify each image with cutoffs from its own RIDs
+	 */
+	public boolean isPerImageCutoffs() {
+		return perImageCutoffs;
+	}
+
+
+
+
+	/**
+	 * @return whether to also write Histograms.csv
+	 */
+	public boolean isHistograms() {
+		return histograms;
+	}
+}
@@ -0,0 +1,74 @@
+package dana;
+
+/**
+ * Receives progress from a running analysis and tells it
+ * whether to stop early.
+ *
+ * Files are processed on several threads, so implementations
+ * must expect to be called from more than one thread at once.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public interface AnalysisListener {
+
+	//listener used when the caller does not need progress
+	AnalysisListener NONE = new AnalysisListener() {
+		@Override
+		public void progress(String stage, int filesDone, int totalFiles, long roisDone) {}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+
+
+
+
+	/**
+	 * Called each time a file finishes a stage.
+	 *
+	 * @param stage - name of the stage ("Reading" or "Writing")
+	 * @param filesDone - files that have finished this stage
+	 * @param totalFiles - files in the analysis
+	 * @param roisDone - ROIs in the files that have finished this stage
+	 */
+	void progress(String stage, int filesDone, int totalFiles, long roisDone);
+
+
+
+
+	/**
+	 * Checked before each file is processed. Once true the analysis
+	 * stops, removes anything it has written and throws a
+	 * CancellationException.
+	 *
+	 * @return true if the analysis should stop
+	 */
+	boolean isCancelled();
+
+
+
+
+	/**
+	 * Called when a watched file could not be read. The file is left
+	 * out of the sample until it changes again.
+	 *
+	 * @param fileName - name of the file
+	 * @param reason - why it could not be read
+	 */
+	default void skipped(String fileName, String reason) {}
+
+
+
+
+	/**
+	 * Called when a watch cannot write its results yet, such as when
+	 * the files so far have too few ROIs to normalize to. The watch
+	 * carries on and writes them once more files arrive.
+	 *
+	 * @param reason - why nothing was written
+	 */
+	default void waiting(String reason) {}
+}
@@ -0,0 +1,181 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Analyzes a tree of sample folders in one run. Every folder below
+ * the input directory that contains .csv files is treated as its own
+ * sample and analyzed independently, several samples at a time.
+ * 
+ * Each sample's output is written to the same relative folder below
+ * the output directory, and a Batch_Summary.csv with one row per
+ * sample is written to the output directory itself.
+ * 
+ * @author Ryan Rebernick
+ *
+ */
+public class BatchAnalysis {
+
+	final Multi_NET_Analysis engine;	//analysis run on every sample
+	final int parallelSamples;			//number of samples analyzed at once
+
+
+
+
+	/**
+	 * @param c - user parameters, shared by every sample
+	 * @param samples - number of samples analyzed at once
+	 */
+	public BatchAnalysis(AnalysisConfig c, int samples) {
+		engine = new Multi_NET_Analysis(c);
+		parallelSamples = Math.max(1, samples);
+	}
+
+
+
+
+	/**
+	 * Finds and analyzes every sample folder. A sample that fails
+	 * does not stop the others; it is listed in Batch_Summary.csv
+	 * with the reason instead.
+	 * 
+	 * @param input - root of the sample folders
+	 * @param output - root the results are written to
+	 * @param listener - receives progress of every sample, may cancel the batch
+	 * @return summaries of every sample, in path order
+	 * @throws IOException if the folders could not be listed or the table written
+	 * @throws CancellationException if the listener cancelled the batch
+	 */
+	public List<SampleSummary> analyze(File input, File output, AnalysisListener listener) throws IOException {
+		List<Path> samples = findSamples(input.toPath(), output.toPath(), engine.config.getInputGlob());
+
+		ExecutorService pool = Executors.newFixedThreadPool(parallelSamples);
+		List<Future<SampleSummary>> runs = new ArrayList<Future<SampleSummary>>();
+		try {
+			for (Path sample: samples) {
+				String name = input.toPath().relativize(sample).toString();
+				File sampleOutput = new File(output, name);
+				runs.add(pool.submit(() -> analyzeSample(sample.toFile(), sampleOutput, name, listener)));
+			}
+
+			List<SampleSummary> summaries = new ArrayList<SampleSummary>();
+			for (Future<SampleSummary> run: runs) {
+				summaries.add(run.get());
+			}
+			if (listener.isCancelled()) {
+				throw new CancellationException("Analysis cancelled");
+			}
+			SampleSummary.writeTable(summaries, output);
+			return summaries;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("analysis interrupted");
+		} catch (ExecutionException e) {
+			//analyzeSample records failures, so only errors get here
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+
+
+
+	/**
+	 * Analyzes one sample folder.
+	 * 
+	 * @param sample - folder containing the sample's .csv files
+	 * @param sampleOutput - folder the results are written to
+	 * @param name - name of the sample in the batch table
+	 * @param listener - receives progress of the sample
+	 * @return the sample's summary, or one holding the error if it failed
+	 */
+	private SampleSummary analyzeSample(File sample, File sampleOutput, String name, AnalysisListener listener) {
+		SampleSummary summary;
+		try {
+			if (!sampleOutput.isDirectory() && !sampleOutput.mkdirs()) {
+				throw new IOException("could not create " + sampleOutput);
+			}
+			summary = engine.analyze(sample.getPath() + File.separator,
+					sampleOutput.getPath() + File.separator, new AnalysisListener() {
+				@Override
+				public void progress(String stage, int filesDone, int totalFiles, long roisDone) {
+					listener.progress(name + ": " + stage, filesDone, totalFiles, roisDone);
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return listener.isCancelled();
+				}
+			});
+		} catch (CancellationException e) {
+			summary = new SampleSummary(engine.config.getTreatment());
+			summary.error = "cancelled";
+		} catch (IOException | RuntimeException e) {
+			summary = new SampleSummary(engine.config.getTreatment());
+			summary.error = e.getMessage() == null ? e.toString() : e.getMessage();
+		}
+		summary.name = name;
+		return summary;
+	}
+
+
+
+
+	/**
+	 * Lists every folder below the root, including the root itself,
+	 * that directly contains input files. Folders inside the output
+	 * directory are skipped so earlier results are not read as input,
+	 * as are staging folders left behind by an interrupted run.
+	 * 
+	 * @param root - root of the sample folders
+	 * @param output - root the results are written to
+	 * @param glob - pattern the names of input files match
+	 * @return the sample folders in path order
+	 * @throws IOException
+	 */
+	static List<Path> findSamples(Path root, Path output, String glob) throws IOException {
+		Path top = root.toAbsolutePath().normalize();
+		Path out = output.toAbsolutePath().normalize();
+		boolean outputInside = out.startsWith(top) && !out.equals(top);
+		try (Stream<Path> dirs = Files.walk(root)) {
+			return dirs.filter(Files::isDirectory)
+					.filter(d -> !(outputInside && d.toAbsolutePath().normalize().startsWith(out)))
+					.filter(d -> d.getFileName() == null || !d.getFileName().toString().startsWith(".DANA_"))
+					.filter(d -> containsInput(d, glob))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+
+
+
+	/**
+	 * @param dir - a folder
+	 * @param glob - pattern the names of input files match
+	 * @return true if the folder directly contains an input file
+	 */
+	private static boolean containsInput(Path dir, String glob) {
+		InputFiles inputs = new InputFiles(dir, glob, false, null);
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.anyMatch(f -> inputs.matches(f) && Files.isRegularFile(f));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package dana;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+/**
+ * Writes the per-ROI results of a sample, and the averages of each
+ * image, to a single binary file (Results.dana) that can be memory
+ * mapped and read without parsing.
+ *
+ * All values are little-endian and every section starts at a multiple
+ * of 8 bytes. The file starts with a 128 byte header:
+ *
+ *   0  "DANA"             magic bytes
+ *   4  int                version (1)
+ *   8  int                number of images
+ *  12  int                reserved (0)
+ *  16  long               number of ROIs
+ *  24  double             area the relative areas were normalized to
+ *  32  double             upper (RID) cutoff
+ *  40  double             lower cutoff
+ *  48  double             NET cutoff
+ *  56  long               offset of the image table
+ *  64  long               offset of the Area column
+ *  72  long               offset of the RawIntDen (RID) column
+ *  80  long               offset of the RelArea column
+ *  88  long               offset of the classification column
+ *  96  long               offset of the image names
+ * 104  24 bytes           reserved (0)
+ *
+ * The image table has one 248 byte record per image, in the order the
+ * images were read:
+ *
+ *   0  long               index of the image's first ROI in the columns
+ *   8  int                number of ROIs in the image
+ *  12  int                flags, bit 0 set if the image is a treatment
+ *  16  29 doubles         the Averages column of the image's .csv
+ *                         output (rows 1-29), NaN where it is blank
+ *
+ * The Area, RID and RelArea columns hold one double per ROI, RelArea
+ * being NaN for outliers. The classification column holds one byte per
+ * ROI: 0 not classified, 1 not a NET, 2 NET, 3 fragment, 4 multiple.
+ * The image names follow as an int length and UTF-8 bytes per image.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class BinaryExport implements Closeable {
+
+	static final byte[] MAGIC = {'D', 'A', 'N', 'A'};
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 128;
+	static final int AVERAGES = 29;		//rows of the Averages column
+	static final int IMAGE_SIZE = 16 + AVERAGES*Double.BYTES;
+	static final int BUFFER_SIZE = 1 << 20;	//bytes written to the channel at a time
+	static final String FILE_NAME = "Results.dana";
+
+	FileChannel channel;	//destination of bytes
+	ByteBuffer buffer;		//bytes not yet written
+	long written;			//bytes written to the channel
+
+
+
+
+	/**
+	 * @param file - the file to create or replace
+	 * @throws FileNotFoundException if the file cannot be created
+	 */
+	private BinaryExport(File file) throws FileNotFoundException {
+		channel = new FileOutputStream(file).getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+
+
+
+	/**
+	 * Writes the results of every image after Matrix.update has run.
+	 *
+	 * @param allFiles - every matrix in the sample
+	 * @param normalizedTo - area the relative areas were normalized to
+	 * @param NETcutoff - the NET cutoff
+	 * @param file - file to write to
+	 * @throws IOException
+	 */
+	public static void write(List<Matrix> allFiles, double normalizedTo, double NETcutoff, File file)
+			throws IOException {
+		long rois = 0;
+		byte[][] names = new byte[allFiles.size()][];
+		for (int i=0; i<names.length; i++) {
+			rois += allFiles.get(i).getNumCells();
+			names[i] = allFiles.get(i).getName().getBytes(StandardCharsets.UTF_8);
+		}
+		Matrix first = allFiles.isEmpty() ? null : allFiles.get(0);
+
+		long images = HEADER_SIZE;
+		long area = images + (long) IMAGE_SIZE*allFiles.size();
+		long rid = area + rois*Double.BYTES;
+		long relArea = rid + rois*Double.BYTES;
+		long classes = relArea + rois*Double.BYTES;
+		long namesOffset = align(classes + rois);
+
+		try (BinaryExport out = new BinaryExport(file)) {
+			out.buffer.put(MAGIC).putInt(VERSION).putInt(allFiles.size()).putInt(0);
+			out.buffer.putLong(rois).putDouble(normalizedTo);
+			out.buffer.putDouble(first == null || first.upperCutoff == null ? Double.NaN : first.upperCutoff);
+			out.buffer.putDouble(first == null || first.lowerCutoff == null ? Double.NaN : first.lowerCutoff);
+			out.buffer.putDouble(NETcutoff);
+			out.buffer.putLong(images).putLong(area).putLong(rid).putLong(relArea).putLong(classes);
+			out.buffer.putLong(namesOffset);
+			out.pad(HEADER_SIZE);
+
+			long firstRoi = 0;
+			for (Matrix m: allFiles) {
+				out.ensure(IMAGE_SIZE);
+				out.buffer.putLong(firstRoi).putInt(m.getNumCells()).putInt(m.isTreatment() ? 1 : 0);
+				for (int row=1; row<=AVERAGES; row++) {
+					Double value = m.averages[row];
+					out.buffer.putDouble(value == null ? Double.NaN : value);
+				}
+				firstRoi += m.getNumCells();
+			}
+
+			for (int col: new int[] {1, 7, 12}) {
+				for (Matrix m: allFiles) {
+					out.put(m.columns[col], m.getNumCells());
+				}
+			}
+			for (Matrix m: allFiles) {
+				out.put(m.classes, m.getNumCells());
+			}
+			out.pad(namesOffset);
+
+			for (byte[] name: names) {
+				out.ensure(4);
+				out.buffer.putInt(name.length);
+				out.put(name, name.length);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * @param offset - a position in the file
+	 * @return the next multiple of 8 at or after it
+	 */
+	static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+
+
+
+	/**
+	 * Makes room in the buffer for at least the given number of bytes.
+	 *
+	 * @param bytes - number of bytes about to be put, at most BUFFER_SIZE
+	 * @throws IOException
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+
+
+
+	/**
+	 * Writes the first n values of a column.
+	 *
+	 * @throws IOException
+	 */
+	private void put(double[] values, int n) throws IOException {
+		int offset = 0;
+		while (offset < n) {
+			ensure(Double.BYTES);
+			int count = Math.min(buffer.remaining()/Double.BYTES, n - offset);
+			buffer.asDoubleBuffer().put(values, offset, count);
+			buffer.position(buffer.position() + count*Double.BYTES);
+			offset += count;
+		}
+	}
+
+
+
+
+	/**
+	 * Writes the first n bytes of an array.
+	 *
+	 * @throws IOException
+	 */
+	private void put(byte[] values, int n) throws IOException {
+		int offset = 0;
+		while (offset < n) {
+			ensure(1);
+			int count = Math.min(buffer.remaining(), n - offset);
+			buffer.put(values, offset, count);
+			offset += count;
+		}
+	}
+
+
+
+
+	/**
+	 * Writes zeros up to the given position in the file.
+	 *
+	 * @throws IOException
+	 */
+	private void pad(long position) throws IOException {
+		while (written + buffer.position() < position) {
+			ensure(1);
+			buffer.put((byte) 0);
+		}
+	}
+
+
+
+
+	/**
+	 * Writes the buffered bytes to the file.
+	 *
+	 * @throws IOException
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+
+
+
+	/**
+	 * Writes any buffered bytes and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package dana;
+
+/**
+ * Thrown when a DANA_I .csv file cannot be read into a Matrix.
+ * Records the line and column of the offending field so the user
+ * can find the problem in the file.
+ *
+ * Extends NumberFormatException so that existing handlers for
+ * malformed input continue to report it.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class CSVFormatException extends NumberFormatException {
+
+	int line;	//line of the file the problem was found on (1 = labels)
+	int column;	//column of the file the problem was found in (1 = first)
+
+
+
+
+	/**
+	 * @param line - line number of the problem (1-based)
+	 * @param column - column number of the problem (1-based)
+	 * @param message - description of the problem
+	 */
+	public CSVFormatException(int line, int column, String message) {
+		super("line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+
+
+
+	/**
+	 * @return line number the problem was found on
+	 */
+	public int getLine() {
+		return line;
+	}
+
+
+
+
+	/**
+	 * @return column number the problem was found in
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,529 @@
+package dana;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Reads the comma separated output of DANA_I one field at a time.
+ *
+ * Files are memory mapped and tokenized in place, so their bytes are
+ * never copied. Files too large to map, and other channels, are pulled
+ * through a single reusable buffer instead. Numeric fields are converted
+ * straight to primitive doubles without creating a String for each
+ * field. Only labels, and the rare number that cannot be converted
+ * exactly by the fast path, are decoded into Strings.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class CSVReader implements Closeable {
+
+	static final int BUFFER_SIZE = 1 << 16;	//bytes read from the channel at a time
+	static final long MAP_MIN = 1 << 20;	//smaller files are read faster than mapped
+	static final long MAP_LIMIT = Integer.MAX_VALUE;	//largest file that can be mapped
+	static final int FIELD = 0;		//field ended with a comma
+	static final int LINE = 1;		//field ended with the end of a line
+	static final int END = 2;		//field ended with the end of the input
+
+	//exact powers of ten used by the fast path
+	static final double[] POWERS = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	ReadableByteChannel channel;	//source of bytes, null once exhausted
+	ByteBuffer buffer;		//bytes not yet consumed, the whole file if mapped
+	ByteBuffer source;		//buffer holding the current field
+	int fieldStart;			//position of the current field in source
+	int fieldLength;		//number of bytes in the current field
+	byte[] field;			//copy of a field split between two reads
+	ByteBuffer copy;		//field[] as a buffer
+	int line;			//current line (1 = labels)
+	int column;			//current column (1 = first)
+	Charset charset;		//charset used to decode labels
+
+
+
+
+	/**
+	 * Opens the .csv file for reading, memory mapping it if it is
+	 * large enough for that to be faster.
+	 *
+	 * @param cFile - the .csv file
+	 * @throws IOException
+	 */
+	public CSVReader(File cFile) throws IOException {
+		this(cFile, true);
+	}
+
+
+
+
+	/**
+	 * Opens the .csv file for reading.
+	 *
+	 * @param cFile - the .csv file
+	 * @param map - whether to memory map the file rather than read it
+	 * 				through a buffer, ignored for files under MAP_MIN
+	 * 				or over MAP_LIMIT
+	 * @throws IOException
+	 */
+	public CSVReader(File cFile, boolean map) throws IOException {
+		this(FileChannel.open(cFile.toPath(), StandardOpenOption.READ), map);
+	}
+
+
+
+
+	/**
+	 * Reads .csv data from an open channel. The channel is closed
+	 * along with the reader.
+	 *
+	 * @param in - channel to read from
+	 */
+	public CSVReader(ReadableByteChannel in) {
+		this(in, ByteBuffer.allocate(BUFFER_SIZE));
+		buffer.flip();
+	}
+
+
+
+
+	/**
+	 * Maps an open file, or reads it through a buffer if it is too
+	 * large to map or mapping is not supported.
+	 *
+	 * @param in - the open file
+	 * @param map - whether to try to map the file
+	 * @throws IOException
+	 */
+	private CSVReader(FileChannel in, boolean map) throws IOException {
+		this(in, mapped(in, map));
+		if (buffer instanceof MappedByteBuffer) {
+			//the mapping stays valid once the channel is closed
+			close();
+		}
+		else {
+			buffer.flip();
+		}
+	}
+
+
+
+
+	/**
+	 * @param in - channel to read from
+	 * @param buf - buffer the bytes are read from
+	 */
+	private CSVReader(ReadableByteChannel in, ByteBuffer buf) {
+		channel = in;
+		buffer = buf;
+		field = new byte[64];
+		copy = ByteBuffer.wrap(field);
+		line = 1;
+		column = 1;
+		charset = Charset.defaultCharset();
+	}
+
+
+
+
+	/**
+	 * @param in - the open file
+	 * @param map - whether to try to map the file
+	 * @return the mapped file, or an empty buffer to read it through
+	 * @throws IOException
+	 */
+	private static ByteBuffer mapped(FileChannel in, boolean map) throws IOException {
+		long size = in.size();
+		if (map && size >= MAP_MIN && size <= MAP_LIMIT) {
+			try {
+				return in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} catch (IOException | UnsupportedOperationException e) {
+				//not every file system supports mapping, the buffer is used instead
+			}
+		}
+		return ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+
+
+
+	/**
+	 * Reads the first line of the file as labels. Labels beyond
+	 * the requested number are ignored.
+	 *
+	 * @param count - number of labels expected
+	 * @return the trimmed labels
+	 * @throws IOException
+	 */
+	public String[] readLabels(int count) throws IOException {
+		String[] labels = new String[count];
+		int end = FIELD;
+		int k = 0;
+		while (end == FIELD) {
+			end = nextField();
+			if (k < count) {
+				labels[k] = text(fieldStart, fieldStart + fieldLength).trim();
+			}
+			k++;
+			column++;
+		}
+		if (k < count) {
+			throw new CSVFormatException(line, column, "expected " + count
+					+ " labels but found " + k);
+		}
+		nextLine(end);
+		return labels;
+	}
+
+
+
+
+	/**
+	 * Reads the next row of data into the array passed to it.
+	 * Blank lines are skipped.
+	 *
+	 * @param row - filled with one value per column
+	 * @return false if there are no rows left
+	 * @throws IOException
+	 * @throws CSVFormatException if a row is short, long or not numeric
+	 */
+	public boolean readRow(double[] row) throws IOException {
+		int end = nextField();
+		//skips blank lines
+		while (end != FIELD && isBlank()) {
+			if (end == END) {
+				return false;
+			}
+			nextLine(end);
+			end = nextField();
+		}
+
+		for (int k=0; k<row.length; k++) {
+			if (k > 0) {
+				if (end != FIELD) {
+					throw new CSVFormatException(line, column+1, "expected " + row.length
+							+ " values but found " + k);
+				}
+				column++;
+				end = nextField();
+			}
+			row[k] = parseField();
+		}
+
+		//a trailing empty field is allowed, anything else is not
+		while (end == FIELD) {
+			column++;
+			end = nextField();
+			if (!isBlank()) {
+				throw new CSVFormatException(line, column, "expected " + row.length
+						+ " values but found more");
+			}
+		}
+		nextLine(end);
+		return true;
+	}
+
+
+
+
+	/**
+	 * @return the line currently being read (1 = labels)
+	 */
+	public int getLine() {
+		return line;
+	}
+
+
+
+
+	/**
+	 * Closes the underlying channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+
+
+
+	/**
+	 * Moves on to the next line unless the input has ended.
+	 *
+	 * @param end - how the last field ended
+	 */
+	private void nextLine(int end) {
+		if (end == LINE) {
+			line++;
+		}
+		column = 1;
+	}
+
+
+
+
+	/**
+	 * Finds the next field. It is left in place in the buffer unless
+	 * it is split between two reads, in which case it is copied into
+	 * field[].
+	 *
+	 * @return FIELD, LINE or END depending on what ended the field
+	 * @throws IOException
+	 */
+	private int nextField() throws IOException {
+		fieldLength = 0;
+		boolean split = false;
+		while (true) {
+			if (!buffer.hasRemaining() && !fill()) {
+				source = copy;
+				fieldStart = 0;
+				return END;
+			}
+			int start = buffer.position();
+			int pos = start;
+			int lim = buffer.limit();
+			while (pos < lim) {
+				byte b = buffer.get(pos++);
+				if (b == ',' || b == '\n') {
+					if (split) {
+						append(start, pos-1);
+						source = copy;
+						fieldStart = 0;
+					}
+					else {
+						source = buffer;
+						fieldStart = start;
+						fieldLength = pos-1 - start;
+					}
+					buffer.position(pos);
+					return b == ',' ? FIELD : LINE;
+				}
+			}
+			//the field continues in the next read
+			append(start, lim);
+			split = true;
+		}
+	}
+
+
+
+
+	/**
+	 * Copies bytes of the buffer onto the end of field[] and
+	 * moves the buffer past them.
+	 *
+	 * @param start - first byte to copy
+	 * @param end - end of the bytes to copy
+	 */
+	private void append(int start, int end) {
+		int n = end - start;
+		if (fieldLength + n > field.length) {
+			field = Arrays.copyOf(field, Math.max(field.length*2, fieldLength + n));
+			copy = ByteBuffer.wrap(field);
+		}
+		buffer.position(start);
+		buffer.get(field, fieldLength, n);
+		fieldLength += n;
+	}
+
+
+
+
+	/**
+	 * Refills the buffer from the channel.
+	 *
+	 * @return false if no bytes are left
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (channel == null) {
+			return false;
+		}
+		buffer.clear();
+		int n = 0;
+		while (n == 0) {
+			n = channel.read(buffer);
+		}
+		buffer.flip();
+		if (n < 0) {
+			close();
+			return false;
+		}
+		return true;
+	}
+
+
+
+
+	/**
+	 * @return true if the current field only contains whitespace
+	 */
+	private boolean isBlank() {
+		for (int i=fieldStart; i<fieldStart + fieldLength; i++) {
+			if (source.get(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+
+
+	/**
+	 * Decodes part of the current field.
+	 *
+	 * @param start - position of the first byte in source
+	 * @param end - end of the bytes in source
+	 * @return the text
+	 */
+	private String text(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i=0; i<bytes.length; i++) {
+			bytes[i] = source.get(start + i);
+		}
+		return new String(bytes, charset);
+	}
+
+
+
+
+	/**
+	 * Converts the current field to a double. Plain decimal numbers
+	 * with at most 15 significant digits are converted exactly using
+	 * a single multiplication or division by a power of ten, everything
+	 * else is left to Double.parseDouble.
+	 *
+	 * @return value of the field
+	 * @throws CSVFormatException if the field is not a number
+	 */
+	private double parseField() {
+		ByteBuffer src = source;
+		int start = fieldStart;
+		int end = fieldStart + fieldLength;
+		while (start < end && src.get(start) <= ' ') {
+			start++;
+		}
+		while (end > start && src.get(end-1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			throw new CSVFormatException(line, column, "missing value");
+		}
+
+		int i = start;
+		boolean negative = false;
+		if (src.get(i) == '-' || src.get(i) == '+') {
+			negative = src.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;		//significant digits in mantissa
+		int scale = 0;		//power of ten applied to mantissa
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		for (; i < end; i++) {
+			byte b = src.get(i);
+			if (b >= '0' && b <= '9') {
+				seenDigit = true;
+				if (mantissa == 0 && b == '0') {
+					//leading zeros are not significant
+					if (seenPoint) {
+						scale--;
+					}
+					continue;
+				}
+				if (digits == 15) {
+					return parseSlow(start, end);
+				}
+				mantissa = mantissa*10 + (b - '0');
+				digits++;
+				if (seenPoint) {
+					scale--;
+				}
+			}
+			else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			}
+			else {
+				break;
+			}
+		}
+		if (!seenDigit) {
+			return parseSlow(start, end);
+		}
+
+		//exponent
+		if (i < end) {
+			if (src.get(i) != 'e' && src.get(i) != 'E') {
+				return parseSlow(start, end);
+			}
+			i++;
+			boolean negExp = false;
+			if (i < end && (src.get(i) == '-' || src.get(i) == '+')) {
+				negExp = src.get(i) == '-';
+				i++;
+			}
+			if (i == end) {
+				return parseSlow(start, end);
+			}
+			int exp = 0;
+			for (; i < end; i++) {
+				byte b = src.get(i);
+				if (b < '0' || b > '9' || exp > 10000) {
+					return parseSlow(start, end);
+				}
+				exp = exp*10 + (b - '0');
+			}
+			scale += negExp ? -exp : exp;
+		}
+
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		}
+		else if (scale >= 0 && scale < POWERS.length) {
+			value = mantissa * POWERS[scale];
+		}
+		else if (scale < 0 && -scale < POWERS.length) {
+			value = mantissa / POWERS[-scale];
+		}
+		else {
+			return parseSlow(start, end);
+		}
+		return negative ? -value : value;
+	}
+
+
+
+
+	/**
+	 * Converts the current field using Double.parseDouble.
+	 *
+	 * @param start - first byte of the trimmed field
+	 * @param end - end of the trimmed field
+	 * @return value of the field
+	 * @throws CSVFormatException if the field is not a number
+	 */
+	private double parseSlow(int start, int end) {
+		String text = text(start, end);
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException n) {
+			throw new CSVFormatException(line, column, "\"" + text + "\" is not a number");
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package dana;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+
+/**
+ * Writes comma separated output straight to a file through a single
+ * reusable buffer, so a whole file is never held in memory.
+ *
+ * Numbers are written exactly as String.valueOf(double) would write
+ * them. Whole numbers, such as counts, pixel values and integrated
+ * densities, are converted without creating a String; other numbers
+ * use Double.toString.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class CSVWriter implements Closeable {
+
+	static final int BUFFER_SIZE = 1 << 16;	//bytes written to the channel at a time
+	static final double PLAIN_LIMIT = 1e7;	//Double.toString uses E notation from here
+
+	FileChannel channel;	//destination of bytes
+	ByteBuffer buffer;		//bytes not yet written
+	byte[] digits;			//scratch space for whole numbers
+	Charset charset;		//charset used to encode labels
+
+
+
+
+	/**
+	 * Creates or replaces the file for writing.
+	 *
+	 * @param file - the .csv file
+	 * @throws FileNotFoundException if the file cannot be created
+	 */
+	public CSVWriter(File file) throws FileNotFoundException {
+		channel = new FileOutputStream(file).getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		digits = new byte[20];
+		charset = Charset.defaultCharset();
+	}
+
+
+
+
+	/**
+	 * Writes text, encoded with the default charset like PrintWriter.
+	 *
+	 * @param text - the text, "null" if null
+	 * @throws IOException
+	 */
+	public void write(String text) throws IOException {
+		if (text == null) {
+			text = "null";
+		}
+		int length = text.length();
+		for (int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			if (c >= 0x80) {
+				//not plain ASCII, let the charset encode the rest
+				write(text.substring(i).getBytes(charset));
+				return;
+			}
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			buffer.put((byte) c);
+		}
+	}
+
+
+
+
+	/**
+	 * Writes a single ASCII character such as a comma or newline.
+	 *
+	 * @param c - the character
+	 * @throws IOException
+	 */
+	public void write(char c) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) c);
+	}
+
+
+
+
+	/**
+	 * Writes a number as String.valueOf(value) would.
+	 *
+	 * @param value - the number
+	 * @throws IOException
+	 */
+	public void write(double value) throws IOException {
+		long whole = (long) value;
+		if (whole != value || value >= PLAIN_LIMIT || value <= -PLAIN_LIMIT) {
+			write(Double.toString(value));
+			return;
+		}
+		if (buffer.remaining() < digits.length + 2) {
+			flush();
+		}
+		if (value < 0 || (value == 0 && Double.doubleToRawLongBits(value) != 0)) {
+			buffer.put((byte) '-');
+			whole = -whole;
+		}
+		int pos = digits.length;
+		do {
+			digits[--pos] = (byte) ('0' + whole % 10);
+			whole /= 10;
+		} while (whole != 0);
+		buffer.put(digits, pos, digits.length - pos);
+		buffer.put((byte) '.');
+		buffer.put((byte) '0');
+	}
+
+
+
+
+	/**
+	 * Writes raw bytes.
+	 *
+	 * @param bytes - the bytes
+	 * @throws IOException
+	 */
+	private void write(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int n = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, n);
+			offset += n;
+		}
+	}
+
+
+
+
+	/**
+	 * Writes the buffered bytes to the file.
+	 *
+	 * @throws IOException
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+
+
+
+	/**
+	 * Writes any buffered bytes and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
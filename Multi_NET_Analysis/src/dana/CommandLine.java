@@ -0,0 +1,617 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Runs DANA without the GUI so it can be used on headless machines
+ * and from scripts or cluster schedulers.
+ *
+ * Parameters are taken from a settings file saved by the Window,
+ * from flags, or both; flags override values from the file.
+ *
+ * Exits with 0 on success, 1 if the analysis failed and 2 if the
+ * parameters were not valid.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class CommandLine {
+
+	static final String USAGE =
+			"Usage: java dana.CommandLine [-settings file.txt] [options]\n"
+			+ "  -settings <file>   settings saved from the DANA window\n"
+			+ "  -input <dir>       input directory\n"
+			+ "  -output <dir>      output directory\n"
+			+ "  -upper <value>     upper elimination cutoff parameter\n"
+			+ "  -lower <value>     lower cutoff value\n"
+			+ "  -exclusion <rule>  how the upper RID cutoff is found from -upper k (default: meansd):\n"
+			+ "                     meansd  mean + k SD\n"
+			+ "                     mad     median + k MAD scaled to an SD, not moved by large multiples\n"
+			+ "                     iqr     upper quartile + k interquartile ranges (Tukey's fence)\n"
+			+ "  -perimage          also classify each image with cutoffs from its own RIDs, writing\n"
+			+ "                     those results to Per_Image and comparing both in Cutoff_Comparison.csv\n"
+			+ "  -relative          normalize to the mean area of the smallest non-outlier ROIs\n"
+			+ "  -smallest <n>      number of smallest ROIs to normalize to (default: 5)\n"
+			+ "  -area <um^2>       normalize to a set area\n"
+			+ "  -cd1 .. -cd4 <x>   DNA decondensation cutoffs 1-4\n"
+			+ "  -net <x>           NET cutoff\n"
+			+ "  -treatment <text>  optional parameter\n"
+			+ "  -groups <list>     also summarize these groups in Groups.csv, each a pattern or\n"
+			+ "                     name=pattern, e.g. Ctrl=*_0uM*,Low=*_1uM*,High=*_10uM*\n"
+			+ "  -samplesheet <f>   .csv file giving the group of each file (file,group per line)\n"
+			+ "  -glob <pattern>    names of the input files (default: *.csv), e.g. *_DAPI.csv\n"
+			+ "  -recursive         also read the folders below -input; output files are named\n"
+			+ "                     by their path, e.g. plate1_A01.csv\n"
+			+ "  -workers <n>       files processed at once (default: all processors)\n"
+			+ "  -cache <dir>       keep parsed files here and reuse those that have not changed\n"
+			+ "  -binary            also write the per-ROI results to Results.dana\n"
+			+ "  -stream            read each file twice instead of holding the whole sample\n"
+			+ "                     in memory, for samples with millions of ROIs\n"
+			+ "  -batch             treat every folder below -input containing .csv files as a sample\n"
+			+ "  -samples <n>       samples analyzed at once in batch mode (default: 2)\n"
+			+ "  -sweep             evaluate every combination of cutoffs given as lists,\n"
+			+ "                     e.g. -net 4,4.5,5 or -upper 1:2:0.25 (start:end:step),\n"
+			+ "                     and write Sweep.csv instead of per-image output\n"
+			+ "  -sweepoutput       also write the per-image output of every combination\n"
+			+ "  -histograms        also write Histograms.csv, fixed and log bins of RelArea and RID\n"
+			+ "                     for every image and group\n"
+			+ "  -report            also write Run_Report.csv, the time, ROIs and bytes of each stage\n"
+			+ "  -watch             keep analyzing .csv files as they are added to -input until stopped\n"
+			+ "                     with Ctrl-C, rewriting only the output that changed\n"
+			+ "  -delay <seconds>   time a watched file must be unchanged before it is read (default: 2)\n"
+			+ "  -quiet             do not print progress\n";
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		System.exit(run(args));
+	}
+
+
+
+
+	/**
+	 * Options that are not part of the settings file.
+	 */
+	static class Options {
+		int workers = 0;			//files processed at once, 0 for the default
+		int samples = 2;			//samples analyzed at once in batch mode
+		int smallest = 5;			//number of smallest ROIs to normalize to
+		File cache = null;			//folder to keep parsed files in, null if not kept
+		String groups = null;		//group patterns, null if not given
+		File sheet = null;			//sample sheet, null if not given
+		ExclusionStrategy exclusion = ExclusionStrategy.MEAN_SD;	//how the upper RID cutoff is found
+		String glob = InputFiles.DEFAULT_GLOB;	//pattern the names of input files match
+		boolean recursive = false;	//also read the folders below the input directory
+		boolean batch = false;		//analyze every sample folder below the input
+		boolean sweep = false;		//evaluate every combination of listed cutoffs
+		boolean sweepOutput = false;	//also write per-image output of every combination
+		boolean binary = false;		//also write Results.dana
+		boolean stream = false;		//read the files twice instead of holding them all
+		boolean report = false;		//also write Run_Report.csv
+		boolean perImage = false;	//also classify each image with its own cutoffs
+		boolean histograms = false;	//also write Histograms.csv
+		boolean watch = false;		//analyze files as they are added until stopped
+		double delay = WatchAnalysis.DEFAULT_DELAY / 1000.0;	//seconds a watched file must be unchanged
+		boolean quiet = false;		//suppress progress
+	}
+
+
+
+
+	/**
+	 * Parses the arguments and runs the analysis.
+	 *
+	 * @param args - command line arguments
+	 * @return exit code
+	 */
+	static int run(String[] args) {
+		Settings settings = new Settings();
+		Options o = new Options();
+
+		try {
+			//settings file first so flags override it
+			for (int i=0; i<args.length-1; i++) {
+				if (args[i].equals("-settings")) {
+					settings = Settings.load(new File(args[i+1]));
+				}
+			}
+
+			for (int i=0; i<args.length; i++) {
+				String flag = args[i];
+				if (flag.equals("-relative")) {
+					settings.useRelative = true;
+					settings.useAbsolute = false;
+					continue;
+				}
+				else if (flag.equals("-quiet")) {
+					o.quiet = true;
+					continue;
+				}
+				else if (flag.equals("-report")) {
+					o.report = true;
+					continue;
+				}
+				else if (flag.equals("-binary")) {
+					o.binary = true;
+					continue;
+				}
+				else if (flag.equals("-stream")) {
+					o.stream = true;
+					continue;
+				}
+				else if (flag.equals("-recursive")) {
+					o.recursive = true;
+					continue;
+				}
+				else if (flag.equals("-perimage")) {
+					o.perImage = true;
+					continue;
+				}
+				else if (flag.equals("-histograms")) {
+					o.histograms = true;
+					continue;
+				}
+				else if (flag.equals("-watch")) {
+					o.watch = true;
+					continue;
+				}
+				else if (flag.equals("-batch")) {
+					o.batch = true;
+					continue;
+				}
+				else if (flag.equals("-sweep")) {
+					o.sweep = true;
+					continue;
+				}
+				else if (flag.equals("-sweepoutput")) {
+					o.sweep = true;
+					o.sweepOutput = true;
+					continue;
+				}
+				else if (flag.equals("-help") || flag.equals("-h")) {
+					System.out.print(USAGE);
+					return 0;
+				}
+				if (i+1 == args.length) {
+					throw new IllegalArgumentException("Missing value for " + flag);
+				}
+				String value = args[++i];
+				switch (flag) {
+				case "-settings":
+					break;
+				case "-input":
+					settings.inputDirectory = value;
+					break;
+				case "-output":
+					settings.outputDirectory = value;
+					break;
+				case "-upper":
+					settings.upperCutoff = value;
+					break;
+				case "-lower":
+					settings.lowerCutoff = value;
+					break;
+				case "-area":
+					settings.area = value;
+					settings.useAbsolute = true;
+					settings.useRelative = false;
+					break;
+				case "-cd1":
+					settings.CDcutoff1 = value;
+					break;
+				case "-cd2":
+					settings.CDcutoff2 = value;
+					break;
+				case "-cd3":
+					settings.CDcutoff3 = value;
+					break;
+				case "-cd4":
+					settings.CDcutoff4 = value;
+					break;
+				case "-net":
+					settings.NETcutoff = value;
+					break;
+				case "-treatment":
+					settings.treatment = value;
+					break;
+				case "-workers":
+					o.workers = parseInt(value, "-workers");
+					break;
+				case "-samples":
+					o.samples = parseInt(value, "-samples");
+					break;
+				case "-delay":
+					o.delay = parse(value, "-delay");
+					break;
+				case "-smallest":
+					o.smallest = parseInt(value, "-smallest");
+					break;
+				case "-cache":
+					o.cache = new File(value);
+					break;
+				case "-groups":
+					o.groups = value;
+					break;
+				case "-exclusion":
+					o.exclusion = ExclusionStrategy.forName(value);
+					break;
+				case "-glob":
+					o.glob = value;
+					break;
+				case "-samplesheet":
+					o.sheet = new File(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + flag);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read settings file: " + e.getMessage());
+			return 2;
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(USAGE);
+			return 2;
+		}
+
+		//by default the processors are split between the samples running at once
+		if (o.workers <= 0) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			o.workers = o.batch ? Math.max(1, processors / Math.max(1, o.samples)) : processors;
+		}
+		try {
+			return analyze(settings, o);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return 2;
+		}
+	}
+
+
+
+
+	/**
+	 * Checks the settings and runs Multi_NET_Analysis, a batch or a
+	 * parameter sweep with them.
+	 *
+	 * @param s - the settings
+	 * @param o - the other options
+	 * @return exit code
+	 * @throws IllegalArgumentException if a setting is not valid
+	 */
+	static int analyze(Settings s, Options o) {
+		if (s.inputDirectory.isEmpty() || s.outputDirectory.isEmpty()) {
+			throw new IllegalArgumentException("An input and output directory are required.");
+		}
+		if (s.useRelative == s.useAbsolute) {
+			throw new IllegalArgumentException("Normalize to either the smallest non-outlier ROIs "
+					+ "(-relative) or a set area (-area), not both or neither.");
+		}
+		if (o.sweep && o.batch) {
+			throw new IllegalArgumentException("-sweep and -batch cannot be used together.");
+		}
+		if (o.stream && (o.sweep || o.binary)) {
+			throw new IllegalArgumentException("-stream cannot be used with -sweep or -binary.");
+		}
+		if (o.watch && (o.batch || o.sweep || o.stream || o.binary || o.report)) {
+			throw new IllegalArgumentException("-watch cannot be used with -batch, -sweep, -stream, -binary or -report.");
+		}
+		if (o.perImage && (o.stream || o.sweep || o.watch)) {
+			throw new IllegalArgumentException("-perimage cannot be used with -stream, -sweep or -watch.");
+		}
+		if (o.recursive && (o.batch || o.watch)) {
+			throw new IllegalArgumentException("-recursive cannot be used with -batch or -watch.");
+		}
+		if (o.delay < 0) {
+			throw new IllegalArgumentException("-delay must not be negative: " + o.delay);
+		}
+		if (o.groups != null && o.sheet != null) {
+			throw new IllegalArgumentException("-groups and -samplesheet cannot be used together.");
+		}
+		if (o.smallest < 1) {
+			throw new IllegalArgumentException("-smallest must be at least 1: " + o.smallest);
+		}
+		//a sweep accepts a list of values for every cutoff, the analysis one value
+		double[] upper = values(s.upperCutoff, "Upper Elimination Cutoff Parameter", o.sweep);
+		double[] lower = values(s.lowerCutoff, "Lower Cutoff Value", o.sweep);
+		double[] cd1 = values(s.CDcutoff1, "DNA Decondensation Cutoff 1", o.sweep);
+		double[] cd2 = values(s.CDcutoff2, "DNA Decondensation Cutoff 2", o.sweep);
+		double[] cd3 = values(s.CDcutoff3, "DNA Decondensation Cutoff 3", o.sweep);
+		double[] cd4 = values(s.CDcutoff4, "DNA Decondensation Cutoff 4", o.sweep);
+		double[] net = values(s.NETcutoff, "NET Cutoff", o.sweep);
+		Double area = s.useAbsolute ? parse(s.area, "Area (um^2) parameter") : null;
+		SampleGroups groups = null;
+		if (o.groups != null) {
+			groups = SampleGroups.fromPatterns(o.groups);
+		}
+		else if (o.sheet != null) {
+			try {
+				groups = SampleGroups.fromSheet(o.sheet);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Could not read sample sheet: " + e.getMessage());
+			}
+		}
+
+		String indir = withSeparator(s.inputDirectory);
+		String outdir = withSeparator(s.outputDirectory);
+		long start = System.nanoTime();
+		boolean quiet = o.quiet;
+		AnalysisListener progress = new AnalysisListener() {
+			@Override
+			public void progress(String stage, int filesDone, int totalFiles, long roisDone) {
+				if (!quiet && filesDone == totalFiles) {
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.err.printf("%s: %d files, %,d ROIs (%,.0f ROIs/s)%n",
+							stage, totalFiles, roisDone, roisDone/seconds);
+				}
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+
+		try {
+			AnalysisConfig config = new AnalysisConfig(upper[0], lower[0], cd1[0], cd2[0], cd3[0], cd4[0],
+					net[0], s.treatment, s.useRelative, area)
+					.withWorkers(o.workers).withSmallest(o.smallest).withCache(o.cache).withBinaryOutput(o.binary)
+					.withStreaming(o.stream).withGroups(groups)
+					.withReport(o.report).withInputs(o.glob, o.recursive)
+					.withExclusion(o.exclusion).withPerImageCutoffs(o.perImage)
+					.withHistograms(o.histograms);
+			if (o.sweep) {
+				List<ParameterSweep.Combination> results = new ParameterSweep(config, upper, lower,
+						cd1, cd2, cd3, cd4, net, o.sweepOutput).run(indir, outdir, progress);
+				if (!quiet) {
+					System.err.printf("%d combinations written to Sweep.csv%n", results.size());
+				}
+			}
+			else if (o.watch) {
+				return watch(config, new File(indir), new File(outdir), o);
+			}
+			else if (o.batch) {
+				List<SampleSummary> summaries = new BatchAnalysis(config, o.samples)
+						.analyze(new File(indir), new File(outdir), progress);
+				int failed = 0;
+				for (SampleSummary summary: summaries) {
+					if (summary.error != null) {
+						System.err.println(summary.name + ": " + summary.error);
+						failed++;
+					}
+				}
+				if (!quiet) {
+					System.err.printf("%d samples analyzed, %d failed%n", summaries.size() - failed, failed);
+				}
+				if (failed > 0) {
+					return 1;
+				}
+			}
+			else {
+				Multi_NET_Analysis engine = new Multi_NET_Analysis(config);
+				engine.analyze(indir, outdir, progress);
+				if (!quiet && engine.cache != null) {
+					System.err.printf("Cache: %d files reused, %d parsed%n",
+							engine.cache.getHits(), engine.cache.getMisses());
+				}
+			}
+		} catch (FileNotFoundException e) {
+			if ("oE1".equals(e.getMessage())) {
+				System.err.println("Output directory: " + outdir + " could not be found.");
+			}
+			else {
+				System.err.println("File not found: " + e.getMessage());
+			}
+			return 1;
+		} catch (IOException e) {
+			System.err.println("There was a problem reading the input directory: " + indir
+					+ " (" + e.getMessage() + ")");
+			return 1;
+		} catch (NullPointerException e) {
+			System.err.println("There was a problem encountered with the input directory: " + indir);
+			return 1;
+		} catch (NumberFormatException e) {
+			System.err.println("There was a problem encountered with: " + e.getMessage());
+			return 1;
+		} catch (CancellationException e) {
+			System.err.println("Analysis cancelled.");
+			return 1;
+		} catch (IndexOutOfBoundsException e) {
+			System.err.println("There were too few ROIs to analyze: " + e.getMessage());
+			return 1;
+		}
+
+		if (!quiet) {
+			System.err.printf("Finished in %.1f s%n", (System.nanoTime() - start) / 1e9);
+		}
+		return 0;
+	}
+
+
+
+
+	/**
+	 * Watches the input folder until the program is stopped, printing
+	 * each batch of files analyzed. Stopping with Ctrl-C lets the watch
+	 * write its last output before the program exits.
+	 *
+	 * @param config - the user parameters
+	 * @param input - the watched folder
+	 * @param output - folder the results are written to
+	 * @param o - the other options
+	 * @return exit code
+	 * @throws IOException if the folder could not be watched or the results written
+	 */
+	static int watch(AnalysisConfig config, File input, File output, Options o) throws IOException {
+		AtomicBoolean stopped = new AtomicBoolean();
+		CountDownLatch finished = new CountDownLatch(1);
+		Thread hook = new Thread(() -> {
+			stopped.set(true);
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(hook);
+
+		boolean quiet = o.quiet;
+		try {
+			if (!quiet) {
+				System.err.println("Watching " + input + " (Ctrl-C to stop)");
+			}
+			new WatchAnalysis(config, Math.round(o.delay*1000)).watch(input, output, new AnalysisListener() {
+				@Override
+				public void progress(String stage, int filesDone, int totalFiles, long roisDone) {
+					if (!quiet) {
+						System.err.printf("%tT %d files, %,d ROIs: %d rewritten%n",
+								System.currentTimeMillis(), totalFiles, roisDone, filesDone);
+					}
+				}
+
+				@Override
+				public void skipped(String fileName, String reason) {
+					System.err.println("Skipped " + fileName + ": " + reason);
+				}
+
+				@Override
+				public void waiting(String reason) {
+					if (!quiet) {
+						System.err.printf("%tT %s%n", System.currentTimeMillis(), reason);
+					}
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return stopped.get();
+				}
+			});
+		} finally {
+			finished.countDown();
+		}
+		if (!stopped.get()) {
+			Runtime.getRuntime().removeShutdownHook(hook);
+		}
+		if (!quiet) {
+			System.err.println("Watch stopped");
+		}
+		return 0;
+	}
+
+
+
+
+	/**
+	 * Parses a numeric setting that may be a list of values. A list is
+	 * separated by commas and each item is a number or an inclusive
+	 * range written start:end:step.
+	 *
+	 * @param value - text of the setting
+	 * @param description - name of the setting for the error message
+	 * @param list - whether more than one value is allowed
+	 * @return the values, in the order given
+	 * @throws IllegalArgumentException if not a number or list of numbers
+	 */
+	static double[] values(String value, String description, boolean list) {
+		if (!list) {
+			return new double[] {parse(value, description)};
+		}
+		List<Double> values = new ArrayList<Double>();
+		try {
+			for (String item: value.split(",")) {
+				String[] range = item.trim().split(":");
+				if (range.length == 1) {
+					values.add(Double.parseDouble(range[0]));
+					continue;
+				}
+				if (range.length != 3) {
+					throw new NumberFormatException(item);
+				}
+				//decimal steps so 4:5:0.1 gives 4.1, 4.2.. rather than 4.1000000000000005
+				BigDecimal from = new BigDecimal(range[0].trim());
+				BigDecimal to = new BigDecimal(range[1].trim());
+				BigDecimal step = new BigDecimal(range[2].trim());
+				if (step.signum() <= 0 || to.compareTo(from) < 0) {
+					throw new NumberFormatException(item);
+				}
+				for (BigDecimal v = from; v.compareTo(to) <= 0; v = v.add(step)) {
+					values.add(v.doubleValue());
+				}
+			}
+		} catch (NumberFormatException n1) {
+			values.clear();
+		}
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("There was a problem encountered with the "
+					+ description + ": \"" + value + "\"");
+		}
+		double[] result = new double[values.size()];
+		for (int i=0; i<result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+
+
+
+
+	/**
+	 * Parses a numeric setting.
+	 *
+	 * @param value - text of the setting
+	 * @param description - name of the setting for the error message
+	 * @return the value
+	 * @throws IllegalArgumentException if not a number
+	 */
+	static double parse(String value, String description) {
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException n1) {
+			throw new IllegalArgumentException("There was a problem encountered with the "
+					+ description + ": \"" + value + "\"");
+		}
+	}
+
+
+
+
+	/**
+	 * Parses a whole number setting, such as a count of threads.
+	 *
+	 * @param value - text of the setting
+	 * @param description - name of the setting for the error message
+	 * @return the value
+	 * @throws IllegalArgumentException if not a whole number that fits in an int
+	 */
+	static int parseInt(String value, String description) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException n1) {
+			throw new IllegalArgumentException("There was a problem encountered with the "
+					+ description + ": \"" + value + "\"");
+		}
+	}
+
+
+
+
+	/**
+	 * @param dir - a directory
+	 * @return the directory ending in a file separator
+	 */
+	static String withSeparator(String dir) {
+		if (dir.endsWith("/") || dir.endsWith(File.separator)) {
+			return dir;
+		}
+		return dir + File.separator;
+	}
+}
@@ -0,0 +1,153 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.List;
+
+
+/**
+ * Compares each image classified with the cutoffs pooled from the
+ * whole sample against the same image classified with cutoffs from
+ * its own RIDs, and writes them side by side to Cutoff_Comparison.csv.
+ * An image is recorded once under each scheme, after it is updated,
+ * since classifying it again replaces its results.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class CutoffComparison {
+
+	static final String FILE_NAME = "Cutoff_Comparison.csv";
+
+	private final String[] names;
+	private final int[] rois;
+	private final Scheme[] pooled;
+	private final Scheme[] image;
+	private final boolean[] own;	//whether the image had enough ROIs for its own cutoff
+
+
+
+
+	/**
+	 * What one image gives under one scheme.
+	 */
+	static class Scheme {
+		double upperCutoff;
+		int multiples;
+		int fragments;
+		int nonOutliers;
+		long NETs;
+		double avgNormalized;	//mean relative area of the non-outliers
+
+		Scheme(Matrix m) {
+			upperCutoff = m.upperCutoff;
+			multiples = m.numMultiples;
+			fragments = m.getFragments();
+			GroupStats totals = m.getTotals();
+			nonOutliers = totals.getCount();
+			NETs = totals.NETs;
+			avgNormalized = totals.normalized.getMean();
+		}
+
+		/**
+		 * @return percentage of the non-outliers that are NETs, blank if there are none
+		 */
+		String percentNETs() {
+			return nonOutliers == 0 ? "" : String.valueOf(((double) NETs/nonOutliers)*100);
+		}
+
+		/**
+		 * @return the mean relative area, blank if there are no non-outliers
+		 */
+		String avgNormalized() {
+			return nonOutliers == 0 ? "" : String.valueOf(avgNormalized);
+		}
+	}
+
+
+
+
+	/**
+	 * @param allFiles - every matrix in the sample
+	 */
+	public CutoffComparison(List<Matrix> allFiles) {
+		int n = allFiles.size();
+		names = new String[n];
+		rois = new int[n];
+		pooled = new Scheme[n];
+		image = new Scheme[n];
+		own = new boolean[n];
+		for (int i=0; i<n; i++) {
+			names[i] = allFiles.get(i).getName();
+			rois[i] = allFiles.get(i).getNumCells();
+		}
+	}
+
+
+
+
+	/**
+	 * Records an image classified with the pooled cutoffs.
+	 *
+	 * @param index - position of the image in the sample
+	 * @param m - the image, once updated
+	 */
+	void pooled(int index, Matrix m) {
+		pooled[index] = new Scheme(m);
+	}
+
+
+
+
+	/**
+	 * Records an image classified with its own cutoffs.
+	 *
+	 * @param index - position of the image in the sample
+	 * @param m - the image, once updated
+	 * @param ownCutoff - false if the image had too few ROIs for its
+	 * 					own cutoff and was classified with the pooled one
+	 */
+	void image(int index, Matrix m, boolean ownCutoff) {
+		image[index] = new Scheme(m);
+		own[index] = ownCutoff;
+	}
+
+
+
+
+	/**
+	 * Writes Cutoff_Comparison.csv, one row per image.
+	 *
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	public void write(File directory) throws FileNotFoundException {
+		PrintWriter pw = new PrintWriter(new File(directory, FILE_NAME));
+		StringBuilder sb = new StringBuilder();
+		sb.append("File,ROIs,Image Cutoff From,"
+				+ "Upper RID Cutoff (pooled),Upper RID Cutoff (image),"
+				+ "Multiples (pooled),Multiples (image),"
+				+ "Fragments (pooled),Fragments (image),"
+				+ "Non-outliers (pooled),Non-outliers (image),"
+				+ "NETs (pooled),NETs (image),"
+				+ "% NETosis (pooled),% NETosis (image),"
+				+ "Avg. Normalized Area (pooled),Avg. Normalized Area (image),");
+		sb.append('\n');
+		for (int i=0; i<names.length; i++) {
+			Scheme p = pooled[i];
+			Scheme s = image[i];
+			sb.append(names[i].replace(',', ';') + ',' + rois[i] + ',' + (own[i] ? "image" : "pooled (too few ROIs)") + ',');
+			sb.append(p.upperCutoff + "," + s.upperCutoff + ",");
+			sb.append(p.multiples + "," + s.multiples + ",");
+			sb.append(p.fragments + "," + s.fragments + ",");
+			sb.append(p.nonOutliers + "," + s.nonOutliers + ",");
+			sb.append(p.NETs + "," + s.NETs + ",");
+			sb.append(p.percentNETs() + "," + s.percentNETs() + ",");
+			sb.append(p.avgNormalized() + "," + s.avgNormalized() + ",");
+			sb.append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+}
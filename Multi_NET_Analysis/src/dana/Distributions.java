@@ -0,0 +1,211 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Histograms of the relative area of the ROIs that are not outliers
+ * and of the RID of every ROI, each in bins of equal width and in bins
+ * of equal width in log10. They are counted by Matrix.update and kept
+ * in the image's GroupStats, so the histograms of a group are merged
+ * with the rest of its totals and no second pass over the ROIs is
+ * needed.
+ *
+ * The fixed RID bins are as wide as the default lower cutoff, so with
+ * the default settings the first bin holds the fragments.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class Distributions {
+
+	static final String FILE_NAME = "Histograms.csv";
+
+	final Histogram relArea = Histogram.fixed(0, 0.25, 80);	//0 to 20x
+	final Histogram relAreaLog = Histogram.log(0.1, 10, 4);	//0.1x to 1000x
+	final Histogram RID = Histogram.fixed(0, 20000, 50);		//0 to 1,000,000
+	final Histogram RIDLog = Histogram.log(1000, 10, 6);		//1e3 to 1e9
+
+
+
+
+	/**
+	 * Counts the relative area of a ROI that is not an outlier.
+	 *
+	 * @param value - the relative area
+	 */
+	public void addRelArea(double value) {
+		relArea.add(value);
+		relAreaLog.add(value);
+	}
+
+
+
+
+	/**
+	 * Counts the RID of a ROI, outlier or not.
+	 *
+	 * @param value - the RID
+	 */
+	public void addRID(double value) {
+		RID.add(value);
+		RIDLog.add(value);
+	}
+
+
+
+
+	/**
+	 * Combines the counts of another image or group into this one.
+	 *
+	 * @param other - counts to merge in
+	 */
+	public void addAll(Distributions other) {
+		relArea.addAll(other.relArea);
+		relAreaLog.addAll(other.relAreaLog);
+		RID.addAll(other.RID);
+		RIDLog.addAll(other.RIDLog);
+	}
+
+
+
+
+	/**
+	 * Writes Histograms.csv for a sample, with a line for each image,
+	 * the treated and other images and all of them together, and each
+	 * group of Groups.csv if there is one.
+	 *
+	 * @param names - name of each image
+	 * @param totals - totals of each image, in the same order, counted with histograms
+	 * @param treatment - the optional parameter
+	 * @param treated - totals of the images named with the optional parameter
+	 * @param other - totals of the other images
+	 * @param sampleGroups - groups of Groups.csv, null if none
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	static void write(List<String> names, List<GroupStats> totals, String treatment, GroupStats treated,
+			GroupStats other, SampleGroups sampleGroups, File directory) throws FileNotFoundException {
+		List<Distributions> perImage = new ArrayList<Distributions>();
+		for (GroupStats t: totals) {
+			perImage.add(of(t));
+		}
+
+		Map<String, Distributions> groups = new LinkedHashMap<String, Distributions>();
+		groups.put("Optional Parameter (" + treatment + ")", of(treated));
+		groups.put("Other", of(other));
+		Distributions combined = new Distributions();
+		combined.addAll(of(treated));
+		combined.addAll(of(other));
+		groups.put("Combined", combined);
+		if (sampleGroups != null) {
+			Map<String, Distributions> byGroup = new LinkedHashMap<String, Distributions>();
+			for (String name: sampleGroups.getNames()) {
+				byGroup.put(name, new Distributions());
+			}
+			for (int i=0; i<names.size(); i++) {
+				byGroup.computeIfAbsent(sampleGroups.groupOf(names.get(i)), g -> new Distributions())
+						.addAll(perImage.get(i));
+			}
+			for (Map.Entry<String, Distributions> entry: byGroup.entrySet()) {
+				groups.put("Group " + entry.getKey(), entry.getValue());
+			}
+		}
+		write(names, perImage, new ArrayList<String>(groups.keySet()),
+				new ArrayList<Distributions>(groups.values()), directory);
+	}
+
+
+
+
+	/**
+	 * @param totals - totals of an image or group
+	 * @return their histograms, empty if none were counted
+	 */
+	private static Distributions of(GroupStats totals) {
+		return totals.distributions == null ? new Distributions() : totals.distributions;
+	}
+
+
+
+
+	/**
+	 * Writes Histograms.csv: for each histogram a line of bin edges,
+	 * then one line of counts per image and per group. The first
+	 * count is of values below the first edge and the last of values
+	 * at or above the last edge.
+	 *
+	 * @param names - name of each image
+	 * @param perImage - histograms of each image, in the same order
+	 * @param groupNames - name of each group
+	 * @param groups - histograms of each group, in the same order
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	static void write(List<String> names, List<Distributions> perImage, List<String> groupNames,
+			List<Distributions> groups, File directory) throws FileNotFoundException {
+		PrintWriter pw = new PrintWriter(new File(directory, FILE_NAME));
+		StringBuilder sb = new StringBuilder();
+		String[] titles = {"RelArea", "RelArea (log)", "RID", "RID (log)"};
+		for (int h=0; h<titles.length; h++) {
+			Histogram bins = histogram(new Distributions(), h);
+			//each bin is labelled with its lower edge, shortened to a float
+			sb.append(titles[h] + ",Name,<" + (float) bins.edge(0) + ',');
+			for (int bin=0; bin<bins.getBins(); bin++) {
+				sb.append((float) bins.edge(bin) + ",");
+			}
+			sb.append(">=" + (float) bins.edge(bins.getBins()) + ',');
+			sb.append('\n');
+			for (int i=0; i<perImage.size(); i++) {
+				append(sb, "Image", names.get(i), histogram(perImage.get(i), h));
+			}
+			for (int i=0; i<groups.size(); i++) {
+				append(sb, "Group", groupNames.get(i), histogram(groups.get(i), h));
+			}
+			sb.append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+
+
+
+
+	/**
+	 * @param d - histograms of an image or group
+	 * @param h - which histogram, in the order written
+	 * @return the histogram
+	 */
+	private static Histogram histogram(Distributions d, int h) {
+		switch (h) {
+		case 0:
+			return d.relArea;
+		case 1:
+			return d.relAreaLog;
+		case 2:
+			return d.RID;
+		default:
+			return d.RIDLog;
+		}
+	}
+
+
+
+
+	/**
+	 * Appends one line of counts.
+	 */
+	private static void append(StringBuilder sb, String scope, String name, Histogram counts) {
+		sb.append(scope + ',' + name + ',');
+		for (int bin=-1; bin<=counts.getBins(); bin++) {
+			sb.append(counts.getCount(bin) + ",");
+		}
+		sb.append('\n');
+	}
+}
@@ -0,0 +1,90 @@
+package dana;
+
+/**
+ * Decides the upper RID cutoff above which a ROI is excluded as a
+ * multiple, from the RIDs of every ROI in the sample. The lower
+ * cutoff is the user's minimum RID whichever strategy is used.
+ *
+ * A strategy is given the pooled mean and variance of the RID and,
+ * if it asks for one, a pooled quantile sketch. Both are kept for each
+ * file as it is read and merged once every file has been read, so
+ * the cutoff takes one pass over the ROIs however the files are split
+ * between workers.
+ *
+ * A sketch finds each quantile to within 1% of its value, which for
+ * RIDs far from zero can be as large as their whole spread. A strategy
+ * that needs the spread about the median to that accuracy asks for a
+ * second sketch, of each RID less the median of the first, which takes
+ * a second pass over the ROIs once the first sketch is merged.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public interface ExclusionStrategy {
+
+	//the mean of the RID plus k SDs
+	ExclusionStrategy MEAN_SD = new MeanSDExclusion();
+
+	//the median of the RID plus k scaled median absolute deviations
+	ExclusionStrategy MEDIAN_MAD = new MedianMADExclusion();
+
+	//the upper quartile of the RID plus k interquartile ranges
+	ExclusionStrategy IQR = new IQRExclusion();
+
+
+
+
+	/**
+	 * @return name given on the command line
+	 */
+	String getName();
+
+
+
+
+	/**
+	 * @return true if the cutoff is found from a quantile sketch of the RID
+	 */
+	boolean usesSketch();
+
+
+
+
+	/**
+	 * @return true if the cutoff is also found from a sketch of each RID
+	 * 			less the median of the RID sketch, implying usesSketch
+	 */
+	default boolean usesDeviations() {
+		return false;
+	}
+
+
+
+
+	/**
+	 * @param rid - mean and variance of the RID of every ROI
+	 * @param sketch - quantiles of the RID of every ROI, null unless usesSketch
+	 * @param deviations - quantiles of the RID of every ROI less
+	 * 				sketch.getMedian(), null unless usesDeviations
+	 * @param k - the upper elimination cutoff parameter
+	 * @return the upper RID cutoff
+	 */
+	double upperCutoff(RunningStats rid, QuantileSketch sketch, QuantileSketch deviations, double k);
+
+
+
+
+	/**
+	 * @param name - name of a strategy, "meansd", "mad" or "iqr"
+	 * @return the strategy
+	 * @throws IllegalArgumentException if there is no strategy of that name
+	 */
+	static ExclusionStrategy forName(String name) {
+		for (ExclusionStrategy s: new ExclusionStrategy[] {MEAN_SD, MEDIAN_MAD, IQR}) {
+			if (s.getName().equalsIgnoreCase(name)) {
+				return s;
+			}
+		}
+		throw new IllegalArgumentException("Unknown exclusion strategy " + name + " (meansd, mad or iqr)");
+	}
+}
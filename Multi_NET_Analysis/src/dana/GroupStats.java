@@ -0,0 +1,115 @@
+package dana;
+
+/**
+ * Totals of one group of images, such as the treated images of a
+ * sample, from which its part of Summary.csv is computed: the areas
+ * of the ROIs not excluded as outliers, their relative (normalized)
+ * areas and how many of those are above the NET cutoff, and optionally
+ * histograms of the relative areas and RIDs. Nothing is kept per ROI,
+ * and totals of separate files can be combined.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class GroupStats {
+
+	final RunningStats areas = new RunningStats();		//areas of non-outlier ROIs
+	final RunningStats normalized = new RunningStats();	//relative areas of non-outlier ROIs
+	long NETs;		//relative areas above the NET cutoff
+	Distributions distributions;	//histograms of the ROIs, null if not counted
+
+
+
+
+	/**
+	 * Adds the area of a ROI that is not an outlier.
+	 *
+	 * @param area - the area
+	 */
+	public void addArea(double area) {
+		areas.add(area);
+	}
+
+
+
+
+	/**
+	 * Adds the relative area of a ROI that is not an outlier.
+	 *
+	 * @param relArea - the relative area
+	 * @param NETcutoff - relative area a NET must be above
+	 */
+	public void addNormalized(double relArea, double NETcutoff) {
+		normalized.add(relArea);
+		if (relArea > NETcutoff) {
+			NETs++;
+		}
+	}
+
+
+
+
+	/**
+	 * Combines the totals of another group into this one.
+	 *
+	 * @param other - totals to merge in
+	 */
+	public void addAll(GroupStats other) {
+		areas.addAll(other.areas);
+		normalized.addAll(other.normalized);
+		NETs += other.NETs;
+		if (other.distributions != null) {
+			if (distributions == null) {
+				distributions = new Distributions();
+			}
+			distributions.addAll(other.distributions);
+		}
+	}
+
+
+
+
+	/**
+	 * @return number of ROIs that are not outliers
+	 */
+	public int getCount() {
+		return (int) areas.getCount();
+	}
+
+
+
+
+	/**
+	 * @return number of relative areas added
+	 */
+	public int getNormalizedCount() {
+		return (int) normalized.getCount();
+	}
+
+
+
+
+	/**
+	 * @param stats - values of a group
+	 * @return sum of the values
+	 */
+	static double sum(RunningStats stats) {
+		return stats.getRawMean()*stats.getCount();
+	}
+
+
+
+
+	/**
+	 * @param stats - values of a group
+	 * @param center - value the differences are taken from
+	 * @return sum of the squared differences of the values from center
+	 */
+	static double sumSquares(RunningStats stats, double center) {
+		if (stats.getCount() == 0) {
+			return 0.0;
+		}
+		double delta = stats.getRawMean() - center;
+		return stats.getM2() + stats.getCount()*delta*delta;
+	}
+}
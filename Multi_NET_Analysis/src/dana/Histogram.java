@@ -0,0 +1,141 @@
+package dana;
+
+import java.util.Arrays;
+
+
+/**
+ * Counts of values in equal bins, either of the value itself or of
+ * its log10, with one more count each for values below the first bin
+ * and at or above the last. Counts of separate files with the same
+ * bins are combined by adding them.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class Histogram {
+
+	final boolean log;		//bins are equal in log10 of the value
+	final double low;		//lower edge of the first bin, as a log10 if log
+	final double width;		//width of each bin, in log10 units if log
+	final long[] counts;	//below, each bin, then at or above the last bin
+	private final double[] edges;	//edges of the log bins, searched instead of taking a log per value
+
+
+
+
+	/**
+	 * @param isLog - whether the bins are equal in log10 of the value
+	 * @param lowEdge - lower edge of the first bin, as a log10 if isLog
+	 * @param binWidth - width of each bin
+	 * @param bins - number of bins
+	 */
+	private Histogram(boolean isLog, double lowEdge, double binWidth, int bins) {
+		log = isLog;
+		low = lowEdge;
+		width = binWidth;
+		counts = new long[bins + 2];
+		edges = log ? new double[bins + 1] : null;
+		if (log) {
+			for (int i=0; i<=bins; i++) {
+				edges[i] = Math.pow(10, low + i*width);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * @param from - lower edge of the first bin
+	 * @param binWidth - width of each bin
+	 * @param bins - number of bins
+	 * @return a histogram of bins of equal width
+	 */
+	static Histogram fixed(double from, double binWidth, int bins) {
+		return new Histogram(false, from, binWidth, bins);
+	}
+
+
+
+
+	/**
+	 * @param from - lower edge of the first bin, above 0
+	 * @param perDecade - bins per factor of 10
+	 * @param decades - factors of 10 covered
+	 * @return a histogram of bins of equal width in log10 of the value
+	 */
+	static Histogram log(double from, int perDecade, int decades) {
+		return new Histogram(true, Math.log10(from), 1.0/perDecade, perDecade*decades);
+	}
+
+
+
+
+	/**
+	 * Counts a value. NaN is ignored, and values of zero or less are
+	 * below the first bin of a log histogram.
+	 *
+	 * @param value - the value
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (log) {
+			//the number of edges at or below the value is its position in counts
+			int pos = Arrays.binarySearch(edges, value);
+			counts[pos >= 0 ? pos + 1 : -pos - 1]++;
+			return;
+		}
+		double bin = Math.floor((value - low) / width);
+		int last = counts.length - 1;
+		counts[bin < 0 ? 0 : bin >= last - 1 ? last : (int) bin + 1]++;
+	}
+
+
+
+
+	/**
+	 * Combines the counts of a histogram with the same bins into this one.
+	 *
+	 * @param other - counts to merge in
+	 */
+	public void addAll(Histogram other) {
+		for (int i=0; i<counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+	}
+
+
+
+
+	/**
+	 * @return number of bins, not counting those below and above
+	 */
+	public int getBins() {
+		return counts.length - 2;
+	}
+
+
+
+
+	/**
+	 * @param bin - a bin, from 0 up to getBins
+	 * @return lower edge of the bin, or upper edge of the last bin if bin is getBins
+	 */
+	public double edge(int bin) {
+		return log ? edges[bin] : low + bin*width;
+	}
+
+
+
+
+	/**
+	 * @param bin - a bin, from -1 for values below the first bin up
+	 * 				to getBins for values above the last
+	 * @return number of values counted in the bin
+	 */
+	public long getCount(int bin) {
+		return counts[bin + 1];
+	}
+}
@@ -0,0 +1,35 @@
+package dana;
+
+/**
+ * Excludes ROIs whose RID is at or above Tukey's upper fence, k
+ * interquartile ranges above the upper quartile. With the default
+ * upper parameter of 1.5 this is the usual boxplot outlier rule.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class IQRExclusion implements ExclusionStrategy {
+
+	@Override
+	public String getName() {
+		return "iqr";
+	}
+
+
+
+
+	@Override
+	public boolean usesSketch() {
+		return true;
+	}
+
+
+
+
+	@Override
+	public double upperCutoff(RunningStats rid, QuantileSketch sketch, QuantileSketch deviations, double k) {
+		double q1 = sketch.getQuantile(0.25);
+		double q3 = sketch.getQuantile(0.75);
+		return q3 + k*(q3 - q1);
+	}
+}
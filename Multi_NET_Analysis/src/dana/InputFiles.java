@@ -0,0 +1,306 @@
+package dana;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Finds the input files of a sample. A file is an input if its name
+ * matches a glob, "*.csv" unless another is given. Only the input
+ * folder is searched, or with recursion every folder below it except
+ * the output directory and staging folders left by an interrupted run.
+ *
+ * The name of a file is its path below the input folder with the
+ * folders joined by underscores, so plate1/A01.csv is named
+ * plate1_A01.csv and files of the same name in different folders are
+ * written to different output files.
+ *
+ * A listing may run on its own thread while the files are read,
+ * handing each file through a bounded queue to the threads reading
+ * them as soon as it is found, so reading starts before a large folder
+ * has been listed and the listing waits while the readers are behind.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class InputFiles {
+
+	static final String DEFAULT_GLOB = "*.csv";
+	static final int QUEUE = 1024;		//files found but not yet taken by the reader
+
+	//put on the queue once the listing has finished
+	private static final Entry END = new Entry(Paths.get(""), -1);
+
+	final Path root;			//the input folder
+	final String glob;			//pattern matched against each file name
+	final boolean recursive;	//also search the folders below the input folder
+	final Path skip;			//folder not searched, null if none
+	private final PathMatcher matcher;
+
+
+
+
+	/**
+	 * @param input - the input folder
+	 * @param pattern - glob matched against each file name
+	 * @param r - whether to search the folders below the input folder
+	 * @param output - the output directory, not searched; null if not known
+	 * @throws IllegalArgumentException if the glob is not valid
+	 */
+	public InputFiles(Path input, String pattern, boolean r, Path output) {
+		root = input;
+		glob = pattern;
+		recursive = r;
+		skip = output == null ? null : output.toAbsolutePath().normalize();
+		matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+	}
+
+
+
+
+	/**
+	 * @param file - a file
+	 * @return true if the name of the file matches the glob
+	 */
+	boolean matches(Path file) {
+		Path name = file.getFileName();
+		return name != null && matcher.matches(name);
+	}
+
+
+
+
+	/**
+	 * @param file - a file found below the input folder
+	 * @return its name in the output, its path below the input folder
+	 * 			with the folders joined by underscores
+	 */
+	String name(Path file) {
+		StringBuilder sb = new StringBuilder();
+		for (Path part: root.relativize(file)) {
+			if (sb.length() > 0) {
+				sb.append('_');
+			}
+			sb.append(part);
+		}
+		return sb.toString();
+	}
+
+
+
+
+	/**
+	 * Lists every input file at once.
+	 *
+	 * @return the files in the order they were found
+	 * @throws IOException if a folder could not be listed
+	 */
+	List<Path> list() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		try {
+			find(files::add);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("listing interrupted");
+		}
+		return files;
+	}
+
+
+
+
+	/**
+	 * Starts listing the input files on a new thread.
+	 *
+	 * @return the listing, to be closed once no more files are taken
+	 */
+	Listing start() {
+		return new Listing();
+	}
+
+
+
+
+	/**
+	 * Receives each file as it is found.
+	 */
+	private interface Found {
+		void add(Path file) throws InterruptedException;
+	}
+
+
+
+
+	/**
+	 * Passes on each input file in the order it is found.
+	 *
+	 * @param found - receives the files
+	 * @throws IOException if a folder could not be listed
+	 * @throws InterruptedException if interrupted while passing on a file
+	 */
+	private void find(Found found) throws IOException, InterruptedException {
+		if (!recursive) {
+			//the name is matched first so only inputs are checked on disk
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(root,
+					f -> matches(f) && Files.isRegularFile(f))) {
+				for (Path f: files) {
+					found.add(f);
+				}
+			}
+			return;
+		}
+
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					if (dir.equals(root)) {
+						return FileVisitResult.CONTINUE;
+					}
+					boolean staging = dir.getFileName().toString().startsWith(".DANA_");
+					boolean output = skip != null && dir.toAbsolutePath().normalize().equals(skip);
+					return staging || output ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (attrs.isRegularFile() && matches(file)) {
+						try {
+							found.add(file);
+						} catch (InterruptedException e) {
+							throw new InterruptedIOException();
+						}
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (InterruptedIOException e) {
+			throw new InterruptedException("listing interrupted");
+		}
+	}
+
+
+
+
+	/**
+	 * An input file and its position in the order the files were found.
+	 */
+	static class Entry {
+		final Path file;
+		final int index;
+
+		Entry(Path f, int i) {
+			file = f;
+			index = i;
+		}
+	}
+
+
+
+
+	/**
+	 * Input files being listed on another thread. Any number of
+	 * threads may take files from it at once.
+	 */
+	class Listing implements Closeable {
+		private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(QUEUE);
+		private final AtomicInteger found = new AtomicInteger();
+		private volatile boolean done;		//every file has been found
+		private volatile IOException error;	//why the listing failed, null if it did not
+		private final Thread thread;
+
+		Listing() {
+			thread = new Thread(() -> {
+				try {
+					find(f -> queue.put(new Entry(f, found.getAndIncrement())));
+				} catch (InterruptedException e) {
+					//closed before the listing finished, nobody is taking files
+					return;
+				} catch (IOException e) {
+					error = e;
+				} catch (RuntimeException e) {
+					error = new IOException(e);
+				}
+				done = true;
+				try {
+					queue.put(END);
+				} catch (InterruptedException e) {}
+			}, "DANA listing");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		/**
+		 * Waits for the next file.
+		 *
+		 * @return the next file, null once every file has been taken
+		 * @throws IOException if the listing failed
+		 */
+		Entry take() throws IOException {
+			Entry next;
+			try {
+				next = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("listing interrupted");
+			}
+			if (next != END) {
+				return next;
+			}
+			//left for the other threads taking files
+			queue.offer(END);
+			if (error != null) {
+				throw error;
+			}
+			return null;
+		}
+
+		/**
+		 * @return true once every file has been found
+		 */
+		boolean isDone() {
+			return done;
+		}
+
+		/**
+		 * @return number of files found so far
+		 */
+		int getFound() {
+			return found.get();
+		}
+
+		/**
+		 * Stops the listing if it has not finished. Files not yet
+		 * taken are dropped, and threads waiting for a file are told
+		 * there are no more.
+		 */
+		void cancel() {
+			thread.interrupt();
+			queue.clear();
+			queue.offer(END);
+		}
+
+		/**
+		 * Stops the listing if it has not finished.
+		 */
+		@Override
+		public void close() {
+			cancel();
+		}
+	}
+}
@@ -1,3 +1,5 @@
+package dana;
+
 import java.io.FileNotFoundException;
 
 
@@ -0,0 +1,619 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Stores and modifies the .csv file for each image.
+ * 
+ * @author Ryan Rebernick
+ *
+ */
+public class Matrix {
+
+	static final int INPUT_COLUMNS = 11;	//number of columns read from each .csv file
+	static final int COLUMNS = 13;	//input columns plus NonOutliers and RelArea
+	static final int INITIAL_ROWS = 256;	//rows allocated before the first resize
+
+	//classification of each ROI
+	static final byte UNCLASSIFIED = 0;	//not an outlier, relative area not yet computed
+	static final byte NON_NET = 1;
+	static final byte NET = 2;
+	static final byte FRAGMENT = 3;	//outlier below the lower cutoff
+	static final byte MULTIPLE = 4;	//outlier above the upper cutoff
+
+	String name; //name of file
+	double[][] columns; //per ROI values by column w/o labels, NaN if no value (outlier)
+	Double[] averages; //per image values by row of the averages column, null if blank
+	String[] labels; //first row of matrix containing labels
+	int numCells; //number of ROIs in the image
+	int x; //count
+	int y; //count
+	int cd1, cd2, cd3, cd4; //counts for cutoffs
+	int numFragments;	//number of fragments 
+	Double upperCutoff;	//matricies upper cutoff value
+	Double lowerCutoff;	//matricies lower cutoff value
+	Double oldRID;		//the non-adjusted RID
+	byte[] classes;		//classification of each ROI by position
+	int numMultiples;	//number of multiples
+	RunningStats ridStats;	//mean and variance of the RID, kept while reading
+	QuantileSketch ridSketch;	//quantiles of the RID, null until first asked for
+	
+	GroupStats totals;	//areas and relative areas of the non-outliers, for the summary
+	String NETlabel;	//classification written for NETs
+	String[] newLabels; //new labels with addtional parameters
+	Boolean isTreatment;//Whether the matrix is treated w/ the optional parameter
+
+	
+	
+
+	/**
+	 * 
+	 * Opens the .csv file, stores data and labels separately. 
+	 * 
+	 * @param cFile - the .csv file
+	 * @param fileName - the name of the .csv file
+	 * @param isT	- boolean value documenting whether treatment (optional)
+	 * @throws IOException
+	 * @throws CSVFormatException if the file contains a malformed row
+	 */
+	public Matrix(File cFile, String fileName, Boolean isT) throws IOException {
+		name = fileName;
+		columns = new double[COLUMNS][];
+		for (int col=0; col<INPUT_COLUMNS; col++){
+			columns[col] = new double[INITIAL_ROWS];
+		}
+		averages = new Double[30];
+		labels = new String[14];
+		x = y = 0;
+		classes = null;
+		isTreatment = isT;
+		numFragments = -1;
+		ridStats = new RunningStats();
+
+		//stores csv file in double array matrix
+		try (CSVReader reader = new CSVReader(cFile)) {
+			//removes labels and store
+			String[] header = reader.readLabels(INPUT_COLUMNS);
+			for (int k=0; k<INPUT_COLUMNS; k++){
+				labels[k] = header[k];
+			}
+
+			//stores all non-label values by column, growing columns as needed
+			double[] row = new double[INPUT_COLUMNS];
+			while (reader.readRow(row)){
+				if (y == columns[0].length){
+					grow();
+				}
+				for (x=0; x<INPUT_COLUMNS; x++) {
+					columns[x][y] = row[x];
+				}
+				ridStats.add(row[7]);
+				y++;
+			}
+		}
+
+		//sets the number of data-containing cells for this file
+		numCells = y;
+	}
+
+
+
+
+	/**
+	 * Creates a matrix from values that were already read, such as
+	 * those kept by MatrixCache.
+	 * 
+	 * @param fileName - the name of the .csv file
+	 * @param isT - boolean value documenting whether treatment (optional)
+	 * @param header - the input column labels
+	 * @param input - the input columns, each holding at least cells values
+	 * @param cells - the number of ROIs
+	 * @param rid - mean and variance of the RID column
+	 */
+	Matrix(String fileName, Boolean isT, String[] header, double[][] input, int cells, RunningStats rid) {
+		name = fileName;
+		columns = new double[COLUMNS][];
+		for (int col=0; col<INPUT_COLUMNS; col++){
+			columns[col] = input[col];
+		}
+		averages = new Double[30];
+		labels = new String[14];
+		for (int k=0; k<INPUT_COLUMNS; k++){
+			labels[k] = header[k];
+		}
+		x = INPUT_COLUMNS;
+		y = numCells = cells;
+		classes = null;
+		isTreatment = isT;
+		numFragments = -1;
+		ridStats = rid;
+	}
+
+
+
+
+	/**
+	 * Doubles the number of rows each input column can hold.
+	 */
+	private void grow() {
+		for (int col=0; col<INPUT_COLUMNS; col++){
+			columns[col] = Arrays.copyOf(columns[col], columns[col].length*2);
+		}
+	}
+
+
+
+
+	/**
+	 * Whether a cell is written blank: past the last ROI, in a column
+	 * that is not kept, or the NonOutliers and RelArea of an outlier.
+	 * Any other NaN is a value and is written as NaN.
+	 * 
+	 * @param col - column of the cell
+	 * @param row - row of the cell
+	 * @return true if the cell has no value
+	 */
+	private boolean isBlank(int col, int row) {
+		if (row >= numCells || col >= COLUMNS || columns[col] == null){
+			return true;
+		}
+		return (col == 11 || col == 12) && (classes[row] == FRAGMENT || classes[row] == MULTIPLE);
+	}
+
+
+	
+	
+	/**
+	 * Finds and marks the outliers in the current matrix
+	 * @param upperValue - if above value, then outlier
+	 * @param lowerValue - if below value then outlier
+	 */
+	public int findOutliers(Double lowerValue, Double upperValue) {
+		upperCutoff = upperValue;
+		lowerCutoff = lowerValue;
+
+		//Marks cells outside of cutoff values (outliers)
+		classes = new byte[numCells];
+		numFragments = numMultiples = 0;
+		
+		columns[11] = new double[numCells];
+		columns[12] = new double[numCells];
+		Arrays.fill(columns[12], Double.NaN);
+		for (int pos=0; pos<numCells; pos++) {
+			double q = columns[7][pos];
+			//if outlier, fill pos w/ NaN (col11) and mark its classification.
+			if ( q>= upperValue){
+				columns[11][pos] = Double.NaN;
+				classes[pos] = MULTIPLE;
+				numMultiples++;
+				
+			}
+			else if (q <= lowerValue){
+				columns[11][pos] = Double.NaN;
+				classes[pos] = FRAGMENT;
+				numFragments++;
+			}
+			//if not outlier fill in column 11
+			else {
+				columns[11][pos] = q;
+			}
+		}
+		return numFragments;
+	}
+
+
+	/**
+	 * Finds the smallest areas of the ROIs not excluded as outliers.
+	 * Must be called after findOutliers, and may be called again after
+	 * update has classified the non-outliers as NETs or not.
+	 *
+	 * @param k - number of areas to keep
+	 * @return the k smallest non-outlier areas
+	 */
+	public SmallestValues smallestAreas(int k) {
+		SmallestValues smallest = new SmallestValues(k);
+		for (int pos=0; pos<numCells; pos++) {
+			if (classes[pos] != FRAGMENT && classes[pos] != MULTIPLE) {
+				smallest.add(columns[1][pos]);
+			}
+		}
+		return smallest;
+	}
+
+
+	
+	
+/**
+ * Updates the matrix to include outliers, relative sizes, 
+ * and new averages excluding outliers.
+ * 
+ * @param avg - the average RID
+ * @param cutoff1 - DNA decondensation cutoff1
+ * @param cutoff2 - DNA decondensation cutoff2
+ * @param cutoff3 - DNA decondensation cutoff3
+ * @param cutoff4 - DNA decondensation cutoff4
+ * @param NETcutoff - the NET cutoff
+ */
+	public void update(Double avg, Double cutoff1, Double cutoff2, 
+			Double cutoff3, Double cutoff4, Double NETcutoff, boolean useRelative, Double setArea) {
+		update(avg, cutoff1, cutoff2, cutoff3, cutoff4, NETcutoff, useRelative, setArea, false);
+	}
+
+
+
+
+/**
+ * Updates the matrix as above, also counting the histograms of its
+ * relative areas and RIDs in its totals if asked to.
+ * 
+ * @param histograms - whether to count the histograms
+ */
+	public void update(Double avg, Double cutoff1, Double cutoff2, Double cutoff3, Double cutoff4,
+			Double NETcutoff, boolean useRelative, Double setArea, boolean histograms) {
+
+		NETlabel = "NET (" + NETcutoff + "x)";
+		cd1 = cd2 = cd3 = cd4 = 0;
+		totals = new GroupStats();
+		Distributions counts = histograms ? new Distributions() : null;
+		totals.distributions = counts;
+		double average,  relArea, 
+		areaAvg, meanAvg, minAvg, maxAvg, circAvg, intDenAvg, newRawIntDenAvg,
+		ARavg, roundAvg, solidityAvg, RelAreaAvg;
+		
+		average = relArea = areaAvg = meanAvg = minAvg = maxAvg = circAvg
+		= intDenAvg = newRawIntDenAvg = ARavg = roundAvg = solidityAvg 
+		= RelAreaAvg = 0.0;
+
+		if (useRelative == true){
+			average = avg;
+		}
+		else { average = setArea;
+		}
+		
+		//calculates averages excluding outliers
+		int count = 0;
+		int NETcount = 0;
+		
+		//calculates averages if not outlier
+		for (int i=0; i<numCells; i++){
+			if (counts != null) {
+				counts.addRID(columns[7][i]);
+			}
+			if (classes[i] != FRAGMENT && classes[i] != MULTIPLE){
+				count++;
+				areaAvg += columns[1][i];
+				meanAvg += columns[2][i];
+				minAvg += columns[3][i];
+				maxAvg += columns[4][i];
+				circAvg += columns[5][i];
+				intDenAvg += columns[6][i];
+				newRawIntDenAvg += columns[7][i];
+				ARavg += columns[8][i];
+				roundAvg += columns[9][i];
+				solidityAvg += columns[10][i];
+
+				totals.addArea(columns[1][i]);
+
+				//adds nonOutliers to column 11
+				columns[11][i] = columns[7][i];
+				//computes rounded relative area for each cell that's not an outlier
+				relArea = (columns[1][i])/average;
+				relArea = (double) Math.round(relArea*100);
+				relArea = relArea/100;
+				columns[12][i] = relArea;
+				if (!Double.isNaN(relArea)) {
+					totals.addNormalized(relArea, NETcutoff);
+					if (counts != null) {
+						counts.addRelArea(relArea);
+					}
+				}
+				
+				//NET vs non NET
+				if (columns[12][i] >= NETcutoff) {
+					classes[i] = NET;
+					NETcount++;
+				}
+				else if (columns[12][i] < NETcutoff){
+					classes[i] = NON_NET;
+				}
+				else {
+					classes[i] = UNCLASSIFIED;
+				}
+						
+				//Chromatin Decondensation
+				if (columns[12][i] >= cutoff4) {
+					cd4++;
+				} 
+				if (columns[12][i] >= cutoff3) {
+					cd3++;
+				} 
+				if (columns[12][i] >= cutoff2) {
+					cd2++;
+				} 
+				if (columns[12][i] >= cutoff1) {
+					cd1++;
+				}
+				
+				//computes relative average area
+				RelAreaAvg = RelAreaAvg += columns[12][i];
+
+			}
+			//else outlier values for relative ara and Nonoutlier are NaN
+			else {
+				columns[11][i] = Double.NaN;
+				columns[12][i] = Double.NaN;
+			}
+		}
+
+		//adds new column labels
+		labels[11] = "NonOutliers";
+		labels[12] = "RelArea";
+		labels[13] = "Classification";
+
+		//stores new average labels in array newLabels	
+		newLabels = new String[31];
+		newLabels[1] = "Area Average:";
+		newLabels[2] = "Mean Average:";
+		newLabels[3] = "Min Average:";
+		newLabels[4] = "Max Average:";
+		newLabels[5] = "Circularity Average:";
+		newLabels[6] = "Integrated Density Average:";
+		newLabels[7] = "New RID Average::";
+		newLabels[8] = "AR Average:";
+		newLabels[9] = "Round Average:";
+		newLabels[10] = "Solidity Average:";
+		newLabels[11] = "Relative Area Average:";
+		newLabels[12] = "";	//Space
+		newLabels[13] = "Lower cutoff:";
+		newLabels[14] = "Fragments Excluded:";
+		newLabels[15] = "Upper cutoff:";
+		newLabels[16] = "Multiples Excluded:";
+		newLabels[17] = "";	//Space
+		newLabels[18] = "(" + cutoff1 + "x) %CD";
+		newLabels[19] = "(" + cutoff2 + "x) %CD";
+		newLabels[20] = "(" + cutoff3 + "x) %CD";
+		newLabels[21] = "(" + cutoff4 + "x) %CD";
+		newLabels[22] = "(" + cutoff1 + "x) #:";
+		newLabels[23] = "(" + cutoff2 + "x) #:";
+		newLabels[24] = "(" + cutoff3 + "x) #:";
+		newLabels[25] = "(" + cutoff4 + "x) #:";
+		newLabels[26] = "";	//Space
+		newLabels[27] =  "% NETs " + "(" + NETcutoff + "x):";
+		newLabels[28] = "# NETs (" + NETcutoff + "x):";
+		newLabels[29] = "# Cells:";			//25 previously
+		
+		//adds new averages to matrix
+		averages[1] = areaAvg/count;
+		averages[2] =meanAvg/count;
+		averages[3] = minAvg/count;
+		averages[4] = maxAvg/count;
+		averages[5] =circAvg/count;
+		averages[6] =intDenAvg/count;
+		averages[7] = newRawIntDenAvg/count;
+		averages[8] = ARavg/count;
+		averages[9] = roundAvg/count;
+		averages[10] = solidityAvg/count;		
+		averages[11] = RelAreaAvg/count;	
+		//space
+		averages[13] = lowerCutoff;
+		averages[14] = (double)numFragments;
+		averages[15] = upperCutoff;
+		averages[16] = (double)numMultiples;
+		//space
+		averages[18] = (double) ((double)cd1*100/(count));	
+		averages[19] = (double) ((double)cd2*100/(count));
+		averages[20] = (double) ((double)cd3*100/(count));	
+		averages[21] = (double) ((double)cd4*100/(count));
+		averages[22] = (double) cd1;
+		averages[23] = (double) cd2;
+		averages[24] = (double) cd3;
+		averages[25] = (double) cd4;
+		//space
+		averages[27] = (double) ((double) NETcount *100/(count));
+		averages[28] = (double) NETcount;
+		averages[29] = (double) count;
+	}
+
+	
+	
+	
+	/**
+	 * creates updated CSV file in location passed to it,
+	 * writing each value as it goes
+	 * 
+	 * @param outputDirectory - directory to output to
+	 * @throws IOException if the file cannot be created or written
+	 */
+	public void createCSV(String outputDirectory) throws IOException {
+		try (CSVWriter out = new CSVWriter(new File(outputDirectory + name + "/"))) {
+			//add column labels
+			for(int num=0; num<14; num++){
+				out.write(labels[num]);
+				out.write(',');
+			}
+			out.write('\n');
+
+			//for each row up to and including row 16 (all calculated)
+			for (int row=0; row<29; row++){
+				//for each column
+				for(int col=0; col<16; col++){
+					//adds outlier column
+					if (col>14 && row <29){
+						out.write(newLabels[row+1]);
+						out.write(',');
+						if (averages[row+1] != null){
+							out.write(averages[row+1]);
+							out.write(',');
+						}
+						else {
+							out.write(" ,");
+						}
+					} 
+					//Collumn indicating whether NET
+					else if (col == 13){
+						if (row < numCells) {
+							out.write(classification(row));
+							out.write(',');
+						}
+						else {
+							out.write(" ,");
+						}
+					//if no value b/c outlier, leave blank
+					} else if (isBlank(col, row)){
+						out.write(',');
+					} 
+					//else append all other values
+					else {
+						out.write(columns[col][row]);
+						out.write(',');
+					}
+				}
+				out.write('\n');
+			}
+			//adds remaining rows of data
+			if (numCells>13){
+				for (int nRow=29; nRow<numCells; nRow++){
+					for(int col=0; col<14; col++){
+						if (col == 13) {
+							out.write(classification(nRow));
+						}
+						else if (!isBlank(col, nRow)){
+							out.write(columns[col][nRow]);
+						}
+						out.write(',');
+					}
+					out.write('\n');
+				}
+			}
+		}
+	}
+
+
+	
+	
+	/**
+	 * Returns the text written to the Classification column for a ROI.
+	 * 
+	 * @param row - position of the ROI
+	 * @return NET label, x, Fr or Mt
+	 */
+	String classification(int row) {
+		switch (classes[row]) {
+		case NET:
+			return NETlabel;
+		case NON_NET:
+			return "x";
+		case FRAGMENT:
+			return "Fr";
+		case MULTIPLE:
+			return "Mt";
+		default:
+			//relative area could not be computed (e.g. normalized to an area of 0)
+			return "null";
+		}
+	}
+
+
+
+
+	/**
+	 * @return mean and variance of the RID of all cells in matrix
+	 */
+	public RunningStats getRIDStats() {
+		return ridStats;
+	}
+
+
+
+
+	/**
+	 * Sketches the RID of every cell the first time it is asked for,
+	 * so files only pay for it when the exclusion strategy needs it.
+	 * 
+	 * @return quantiles of the RID of all cells in matrix
+	 */
+	public QuantileSketch getRIDSketch() {
+		if (ridSketch == null) {
+			QuantileSketch sketch = new QuantileSketch();
+			double[] RID = columns[7];
+			for (int pos=0; pos<numCells; pos++) {
+				sketch.add(RID[pos]);
+			}
+			ridSketch = sketch;
+		}
+		return ridSketch;
+	}
+
+
+
+
+	/**
+	 * @param center - value taken from every RID, near their median
+	 * @return quantiles of the RID less center of all cells in matrix
+	 */
+	public QuantileSketch getRIDDeviations(double center) {
+		QuantileSketch sketch = new QuantileSketch();
+		double[] RID = columns[7];
+		for (int pos=0; pos<numCells; pos++) {
+			sketch.add(RID[pos] - center);
+		}
+		return sketch;
+	}
+
+	
+	
+
+	/**
+	 * @return totals of the ROIs that are not outliers, set by update
+	 */
+	public GroupStats getTotals() {
+		return totals;
+	}
+
+	
+	
+
+	/**
+	 * 
+	 * @return true if is treatment
+	 */
+	public boolean isTreatment() {
+		return isTreatment;
+	}
+
+	
+	
+	
+	/**
+	 * @return number of ROIs in the image
+	 */
+	public int getNumCells(){
+		return numCells;
+	}
+	
+	
+	
+	
+	/**
+	 * Returns the number of fragments in the matrix.
+	 * 
+	 */
+	public int getFragments(){
+		return numFragments;
+	}
+	
+	
+	
+	
+	
+	/**
+	 * 
+	 * @return name of the matrix file
+	 */
+	public String getName(){
+		return name;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package dana;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+
+/**
+ * Keeps the parsed input of each .csv file in a folder so files that
+ * have not changed since the last run do not need to be parsed again.
+ *
+ * Each file has one entry, identified by its path, size, modification
+ * time and a CRC32C of its contents. An entry holds the input columns
+ * and RID stats in binary form (little-endian):
+ *
+ *  int magic, int version, long size, long modified, int crc,
+ *  path, int rows, 11 labels, long count, double mean, double m2,
+ *  then each of the 11 input columns as rows doubles.
+ *
+ * Strings are stored as an int length followed by UTF-8 bytes. An entry
+ * that does not match the file is replaced. Problems saving an entry
+ * never stop the analysis; the file is simply parsed again next time.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class MatrixCache {
+
+	static final int MAGIC = 0x44414E41;	//"DANA"
+	static final int VERSION = 1;
+	static final String EXTENSION = ".dana";
+
+	File directory;		//folder holding the entries
+	AtomicInteger hits = new AtomicInteger();	//files loaded from the cache
+	AtomicInteger misses = new AtomicInteger();	//files parsed
+
+
+
+
+	/**
+	 * @param dir - folder to keep the entries in, created if needed
+	 */
+	public MatrixCache(File dir) {
+		directory = dir;
+	}
+
+
+
+
+	/**
+	 * Loads the matrix for a .csv file from the cache if the file has
+	 * not changed, otherwise parses it and saves a new entry.
+	 *
+	 * @param cFile - the .csv file
+	 * @param fileName - the name of the .csv file
+	 * @param isT - boolean value documenting whether treatment (optional)
+	 * @return the matrix
+	 * @throws IOException
+	 * @throws CSVFormatException if the file contains a malformed row
+	 */
+	public Matrix read(File cFile, String fileName, Boolean isT) throws IOException {
+		String path = cFile.getAbsolutePath();
+		long size = cFile.length();
+		long modified = cFile.lastModified();
+		int crc = checksum(cFile);
+		File entry = entryFor(cFile, path);
+
+		Matrix m = load(entry, path, size, modified, crc, fileName, isT);
+		if (m != null) {
+			hits.incrementAndGet();
+			return m;
+		}
+		misses.incrementAndGet();
+		m = new Matrix(cFile, fileName, isT);
+		save(entry, path, size, modified, crc, m);
+		return m;
+	}
+
+
+
+
+	/**
+	 * @return number of files loaded from the cache
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+
+
+
+	/**
+	 * @return number of files that had to be parsed
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+
+
+
+	/**
+	 * @param cFile - the .csv file
+	 * @param path - its absolute path
+	 * @return the entry file for it
+	 */
+	private File entryFor(File cFile, String path) {
+		CRC32C crc = new CRC32C();
+		crc.update(path.getBytes(StandardCharsets.UTF_8));
+		return new File(directory, cFile.getName() + "." + Long.toHexString(crc.getValue()) + EXTENSION);
+	}
+
+
+
+
+	/**
+	 * @param file - file to checksum
+	 * @return CRC32C of the contents
+	 * @throws IOException
+	 */
+	static int checksum(File file) throws IOException {
+		CRC32C crc = new CRC32C();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CSVReader.BUFFER_SIZE);
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+				crc.update(buffer);
+				buffer.clear();
+			}
+		}
+		return (int) crc.getValue();
+	}
+
+
+
+
+	/**
+	 * Reads an entry if it matches the file.
+	 *
+	 * @return the matrix, null if there is no matching entry
+	 */
+	private Matrix load(File entry, String path, long size, long modified, int crc,
+			String fileName, Boolean isT) {
+		if (!entry.isFile()) {
+			return null;
+		}
+		try (FileChannel in = FileChannel.open(entry.toPath(), StandardOpenOption.READ)) {
+			long length = in.size();
+			if (length > Integer.MAX_VALUE) {
+				return null;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining() && in.read(buffer) != -1) {
+			}
+			buffer.flip();
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+					|| buffer.getLong() != size || buffer.getLong() != modified
+					|| buffer.getInt() != crc || !path.equals(getString(buffer))) {
+				return null;
+			}
+			int rows = buffer.getInt();
+			String[] header = new String[Matrix.INPUT_COLUMNS];
+			for (int k=0; k<Matrix.INPUT_COLUMNS; k++) {
+				header[k] = getString(buffer);
+			}
+			RunningStats rid = new RunningStats(buffer.getLong(), buffer.getDouble(), buffer.getDouble());
+			double[][] input = new double[Matrix.INPUT_COLUMNS][];
+			for (int col=0; col<Matrix.INPUT_COLUMNS; col++) {
+				input[col] = new double[rows];
+				buffer.asDoubleBuffer().get(input[col]);
+				buffer.position(buffer.position() + rows*Double.BYTES);
+			}
+			return new Matrix(fileName, isT, header, input, rows, rid);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException
+				| NegativeArraySizeException e) {
+			//unreadable entries are replaced
+			return null;
+		}
+	}
+
+
+
+
+	/**
+	 * Writes an entry, replacing any existing one at once so other
+	 * runs never see a partly written entry.
+	 */
+	private void save(File entry, String path, long size, long modified, int crc, Matrix m) {
+		Path temp = null;
+		try {
+			Files.createDirectories(directory.toPath());
+			byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+			byte[][] header = new byte[Matrix.INPUT_COLUMNS][];
+			int length = 4 + 4 + 8 + 8 + 4 + 4 + pathBytes.length + 4 + 8 + 8 + 8
+					+ Matrix.INPUT_COLUMNS*(4 + m.numCells*Double.BYTES);
+			for (int k=0; k<Matrix.INPUT_COLUMNS; k++) {
+				header[k] = String.valueOf(m.labels[k]).getBytes(StandardCharsets.UTF_8);
+				length += header[k].length;
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putInt(crc);
+			buffer.putInt(pathBytes.length).put(pathBytes);
+			buffer.putInt(m.numCells);
+			for (byte[] label: header) {
+				buffer.putInt(label.length).put(label);
+			}
+			RunningStats rid = m.getRIDStats();
+			buffer.putLong(rid.getCount()).putDouble(rid.getRawMean()).putDouble(rid.getM2());
+			for (int col=0; col<Matrix.INPUT_COLUMNS; col++) {
+				buffer.asDoubleBuffer().put(m.columns[col], 0, m.numCells);
+				buffer.position(buffer.position() + m.numCells*Double.BYTES);
+			}
+			buffer.flip();
+
+			temp = Files.createTempFile(directory.toPath(), ".entry", ".tmp");
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+			}
+			Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException | RuntimeException e) {
+			//the file is parsed again next time
+		} finally {
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * @param buffer - buffer positioned at a length-prefixed string
+	 * @return the string
+	 */
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,37 @@
+package dana;
+
+/**
+ * Excludes ROIs whose RID is at least k SDs above the mean, the
+ * original DANA rule. A few very large multiples raise the SD and so
+ * the cutoff, letting smaller multiples through.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class MeanSDExclusion implements ExclusionStrategy {
+
+	@Override
+	public String getName() {
+		return "meansd";
+	}
+
+
+
+
+	@Override
+	public boolean usesSketch() {
+		return false;
+	}
+
+
+
+
+	@Override
+	public double upperCutoff(RunningStats rid, QuantileSketch sketch, QuantileSketch deviations, double k) {
+		double average = rid.getMean();
+		double SD = rid.getSD();
+
+		//sets RID CUTOFF VALUES
+		return average + (k*SD);
+	}
+}
@@ -0,0 +1,58 @@
+package dana;
+
+/**
+ * Excludes ROIs whose RID is at least k robust SDs above the median,
+ * the robust SD being the median absolute deviation scaled to match
+ * the SD of normally distributed values. Multiples change the median
+ * and MAD little however large they are, so k has the same meaning
+ * as for MeanSDExclusion without the largest multiples moving it.
+ *
+ * The median and MAD are found from a sketch of each RID less the
+ * median of the RID sketch. Its errors are a fraction of each RID's
+ * distance from that median rather than of the RID itself. The cutoff
+ * is within 1% of k scaled MADs of the one found by sorting, plus at
+ * most 0.01% of the median for the median and 0.02% of the median per
+ * scaled MAD, where one sketch alone was off by up to 1% of the median
+ * per scaled MAD.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class MedianMADExclusion implements ExclusionStrategy {
+
+	static final double NORMAL_SCALE = 1.4826;	//SD of normal values per unit of MAD
+
+
+
+
+	@Override
+	public String getName() {
+		return "mad";
+	}
+
+
+
+
+	@Override
+	public boolean usesSketch() {
+		return true;
+	}
+
+
+
+
+	@Override
+	public boolean usesDeviations() {
+		return true;
+	}
+
+
+
+
+	@Override
+	public double upperCutoff(RunningStats rid, QuantileSketch sketch, QuantileSketch deviations, double k) {
+		//how far the median of the RID sketch is from the median
+		double shift = deviations.getMedian();
+		return sketch.getMedian() + shift + k*NORMAL_SCALE*deviations.getMAD(shift);
+	}
+}
@@ -0,0 +1,776 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * 
+ * Directs analysis of Fiji NET_analysis output. 
+ * Inputs .csv files from a specified folder and outputs 
+ * modified .csv files to specified folder. 
+ * 
+ * Images from a single subject/sample are analyzed together to
+ * improve sample size and provide accurate measurements.
+ * 
+ * DANA pools ROIs from all images within specified folder. 
+ * It then eliminates outliers based on Raw Integrated Density (RID). 
+ * Any ROIs with a RID greater than a predetermined (value*SD of all ROIs) 
+ * from the mean ROI's RID are excluded. Any ROIs with values less than 
+ * the lower cutoff are excluded. Relative DNA decondensation 
+ * and %NETosis are calculated by averaging the area of the 5 smallest, 
+ * non-excluded ROI's and dividing the area of the ROI of interest by that value. 
+ *  
+ * The value of DNA decondensation which defines a NET is based upon
+ * a user defined cutoff. 
+ * 
+ * Files are read, screened for outliers and written in parallel. The
+ * pooled RID cutoffs and the normalizing area are computed between
+ * those stages once every file has reached them. Output is written to
+ * a staging folder and only moved into the output directory once the
+ * whole run has succeeded, so a failed or cancelled run leaves nothing
+ * behind.
+ * 
+ * Optionally each image is also classified with cutoffs from its own
+ * RIDs, whose stats are kept for each file as it is read, and those
+ * results are written to a Per_Image folder next to the pooled ones.
+ * 
+ * @author Ryan Rebernick
+ *
+ */
+public class Multi_NET_Analysis {
+	static final String PER_IMAGE = "Per_Image";	//folder of the results with per-image cutoffs
+	static final int MIN_IMAGE_ROIS = 10;		//fewest ROIs an image's own cutoff is found from
+
+	final AnalysisConfig config;		//user parameters, shared by every run
+	final MatrixCache cache;			//parsed files kept between runs, null if not kept
+
+	
+	
+	
+/**
+ *The main functional class of DANA. Holds the user params from GUI
+ *or command line; each call to analyze() reads in .csv files from a
+ *specified folder and carries out the analysis. Nothing is kept between
+ *calls except the optional cache of parsed files, so one instance may
+ *analyze several folders at once.
+ *   
+ * @param c - user parameters
+ */
+	public Multi_NET_Analysis(AnalysisConfig c) {
+		config = c;
+		cache = c.getCacheDirectory() == null ? null : new MatrixCache(c.getCacheDirectory());
+	}
+
+
+
+
+/**
+ * Analyzes every .csv file in a folder, reporting progress to a 
+ * listener, which may also cancel the run.
+ * 
+ * @param input - input file path
+ * @param output - output filepath
+ * @param listener - receives progress after each file is read or written
+ * @return the values written to Summary.csv
+ * @throws IOException
+ * @throws CancellationException if the listener cancelled the run
+ */
+	public SampleSummary analyze(String input, String output, AnalysisListener listener) throws IOException  {
+		//fails before reading anything if there is nowhere to write
+		if (!new File(output).isDirectory()) {
+			throw new FileNotFoundException("oE1");
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(config.getWorkers());
+		RunReport report = RunReport.create(config.isReport());
+		try {
+			if (config.isStreaming()) {
+				return new StreamingAnalysis(this).analyze(input, output, pool, listener, report);
+			}
+			List<Matrix> allFiles = readAll(inputFiles(input, output), pool, listener, report);
+			return analyze(allFiles, output, pool, listener, report);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+
+
+
+/**
+ * Reads every .csv file in a folder, seperating them based on the 
+ * optional user-specified treatment.
+ * 
+ * @param input - input file path
+ * @param pool - threads to read the files on
+ * @param listener - receives progress after each file is read
+ * @return a matrix for each file, in the order they were found
+ * @throws IOException
+ * @throws CancellationException if the listener cancelled the run
+ */
+	public List<Matrix> readAll(String input, ExecutorService pool, AnalysisListener listener) throws IOException {
+		return readAll(inputFiles(input, null), pool, listener, RunReport.DISABLED);
+	}
+
+
+
+
+/**
+ * Reads every input file, timing each read. Files are read as soon
+ * as they are found, while the rest of the folder is still listed.
+ * Until the listing has finished, the listener is told of one more file
+ * than has been found so far.
+ * 
+ * @param inputs - the input files
+ * @param report - records the time of each read
+ */
+	List<Matrix> readAll(InputFiles inputs, ExecutorService pool, AnalysisListener listener,
+			RunReport report) throws IOException {
+		Map<Integer, Matrix> read = new ConcurrentSkipListMap<Integer, Matrix>();
+		AtomicInteger filesRead = new AtomicInteger();
+		AtomicLong roisRead = new AtomicLong();
+		AtomicBoolean allReported = new AtomicBoolean();
+		try (InputFiles.Listing listing = inputs.start()) {
+			//each worker reads files as they are found until none are left
+			Callable<Void> reader = () -> {
+				try {
+					for (InputFiles.Entry next = listing.take(); next != null; next = listing.take()) {
+						checkCancelled(listener);
+						File cFile = next.file.toFile();
+						long start = report.start();
+						Matrix m = read(cFile, inputs.name(next.file));
+						if (config.getExclusion().usesSketch()) {
+							//sketched here so it is done by every worker at once
+							m.getRIDSketch();
+						}
+						report.stop("Reading", start, m.getNumCells(), report.length(cFile), 0);
+						read.put(next.index, m);
+						int done = filesRead.incrementAndGet();
+						boolean listed = listing.isDone();
+						int total = listed ? listing.getFound() : listing.getFound() + 1;
+						listener.progress("Reading", done, total, roisRead.addAndGet(m.getNumCells()));
+						if (listed && done == total) {
+							allReported.set(true);
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					//stops the other workers
+					listing.cancel();
+					throw e;
+				}
+				return null;
+			};
+			runAll(pool, Collections.nCopies(config.getWorkers(), reader));
+		}
+
+		//keeps the files in the order they were found
+		List<Matrix> allFiles = new ArrayList<Matrix>(read.values());
+		if (!allReported.get() && !allFiles.isEmpty()) {
+			listener.progress("Reading", allFiles.size(), allFiles.size(), roisRead.get());
+		}
+		return allFiles;
+	}
+
+
+
+
+/**
+ * Finds the input files of a folder as the config asks.
+ * 
+ * @param input - input file path
+ * @param output - output filepath, not searched for input; null if not known
+ * @return the input files
+ */
+	InputFiles inputFiles(String input, String output) {
+		return new InputFiles(new File(input).toPath(), config.getInputGlob(), config.isRecursive(),
+				output == null ? null : new File(output).toPath());
+	}
+
+
+
+
+/**
+ * Reads a .csv file named as it is on disk.
+ * 
+ * @param cFile - the .csv file
+ * @return the matrix
+ * @throws IOException
+ */
+	Matrix read(File cFile) throws IOException {
+		return read(cFile, cFile.getName());
+	}
+
+
+
+
+/**
+ * Reads a .csv file, from the cache if one is kept, seperating it
+ * based on the optional user-specified treatment.
+ * 
+ * @param cFile - the .csv file
+ * @param name - name of the file in the output
+ * @return the matrix
+ * @throws IOException
+ * @throws NumberFormatException naming the file if it contains a malformed row
+ */
+	Matrix read(File cFile, String name) throws IOException {
+		boolean isT = isTreatment(name);
+		try {
+			return cache == null ? new Matrix(cFile, name, isT) : cache.read(cFile, name, isT);
+		} catch (NumberFormatException n2){
+			throw new NumberFormatException(name + " (" + n2.getMessage() + ")");
+		}
+	}
+
+
+
+
+/**
+ * @param fileName - name of a .csv file
+ * @return true if the file is named with the optional parameter
+ */
+	boolean isTreatment(String fileName) {
+		return fileName.contains(config.getTreatment());
+	}
+
+
+
+
+/**
+ * Analyzes files that were already read and writes the results. 
+ * The matrices are modified, so they must not be used by another 
+ * analysis at the same time.
+ * 
+ * @param allFiles - every matrix in the sample
+ * @param output - output filepath
+ * @param pool - threads to process the files on
+ * @param listener - receives progress after each file is written
+ * @return the values written to Summary.csv
+ * @throws IOException
+ * @throws CancellationException if the listener cancelled the run
+ */
+	public SampleSummary analyze(List<Matrix> allFiles, String output, ExecutorService pool,
+			AnalysisListener listener) throws IOException {
+		return analyze(allFiles, output, pool, listener, RunReport.create(config.isReport()));
+	}
+
+
+
+
+/**
+ * Analyzes files that were already read, timing each stage.
+ * 
+ * @param report - records the time of each stage, written to Run_Report.csv
+ */
+	SampleSummary analyze(List<Matrix> allFiles, String output, ExecutorService pool,
+			AnalysisListener listener, RunReport report) throws IOException {
+		int totalFiles = allFiles.size();
+		AtomicInteger filesWritten = new AtomicInteger();
+		AtomicLong roisWritten = new AtomicLong();
+
+		//everything is written here first, then moved to the output directory
+		File outputFolder = new File(output);
+		File staging = createStaging(outputFolder);
+		String stagingDirectory = staging.getPath() + File.separator;
+
+		boolean finished = false;
+		try {
+			//Find cutoff values from RID of all matricies in allFiles
+			long start = report.start();
+			double upperCutoff = findCutoffs(allFiles);
+			report.stop("Cutoffs", start);
+			double lowerCutoff = config.getLowerCutoff();
+
+			//Find outliers for each file based on cutoffs generated from all RID values
+			//the smallest areas are only needed to normalize to them
+			SmallestValues[] smallest = new SmallestValues[allFiles.size()];
+			List<Callable<Integer>> screens = new ArrayList<Callable<Integer>>();
+			for (int i=0; i<allFiles.size(); i++){
+				Matrix next = allFiles.get(i);
+				int index = i;
+				screens.add(() -> {
+					long started = report.start();
+					int frags = next.findOutliers(lowerCutoff, upperCutoff);
+					if (config.isRelative()) {
+						smallest[index] = next.smallestAreas(config.getSmallest());
+					}
+					report.stop("Screening", started, next.getNumCells(), 0, 0);
+					return frags;
+				});
+			}
+			int totFrags = 0;
+			for (int frags: runAll(pool, screens)){
+				totFrags += frags;
+			}
+
+			//computes average of the smallest cells
+			checkCancelled(listener);
+			start = report.start();
+			double average = config.isRelative() ? normalize(smallest, config.getSmallest()) : Double.NaN;
+			report.stop("Normalizing", start);
+
+			//computes new parameters and updates matrix with new param values
+			List<Callable<Void>> writes = new ArrayList<Callable<Void>>();
+			for(Matrix m: allFiles){
+				writes.add(() -> {
+					checkCancelled(listener);
+					long started = report.start();
+					m.update(average, config.getCDcutoff1(), config.getCDcutoff2(), config.getCDcutoff3(), config.getCDcutoff4(),
+							config.getNETcutoff(), config.isRelative(), config.getAbsArea(), config.isHistograms());
+					report.stop("Updating", started, m.getNumCells(), 0, 0);
+
+					started = report.start();
+					try {
+						m.createCSV(stagingDirectory);
+					} catch (FileNotFoundException e2) {
+						throw new FileNotFoundException("oE1");
+					}
+					report.stop("Writing", started, m.getNumCells(), 0,
+							report.length(new File(staging, m.getName())));
+					listener.progress("Writing", filesWritten.incrementAndGet(), totalFiles,
+							roisWritten.addAndGet(m.getNumCells()));
+					return null;
+				});
+			}
+			runAll(pool, writes);
+
+			//optional binary copy of the per-ROI results for plotting
+			if (config.isBinaryOutput()) {
+				start = report.start();
+				double normalizedTo = config.isRelative() ? average : config.getAbsArea();
+				File binary = new File(staging, BinaryExport.FILE_NAME);
+				BinaryExport.write(allFiles, normalizedTo, config.getNETcutoff(), binary);
+				report.stop("Binary", start, 0, 0, report.length(binary));
+			}
+
+			//creates CSV file containing summary of data
+			//between user specified treatments.
+			start = report.start();
+			SampleSummary summary = totalCSV(allFiles, totFrags, staging);
+			report.stop("Summary", start);
+
+			//the same images again, each with cutoffs from its own RIDs
+			if (config.isPerImageCutoffs()) {
+				perImageCutoffs(allFiles, upperCutoff, staging, pool, listener, report);
+			}
+			report.write(staging);
+
+			//last chance to cancel before the output directory is touched
+			checkCancelled(listener);
+			moveAll(staging, outputFolder);
+			finished = true;
+			return summary;
+		} finally {
+			if (!finished) {
+				deleteAll(staging);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Classifies every image again with the upper cutoff its own RIDs
+	 * give, once the pooled results have been written. The images are
+	 * not read again: the RID stats of each were kept as it was read.
+	 * The results are written to the Per_Image folder as a whole run
+	 * of their own, normalized to the smallest areas left by the
+	 * per-image cutoffs, and the two schemes are compared image by
+	 * image in Cutoff_Comparison.csv. An image with fewer than
+	 * MIN_IMAGE_ROIS ROIs is classified with the pooled cutoff.
+	 * 
+	 * @param allFiles - every matrix in the sample, updated with the pooled cutoffs
+	 * @param pooledCutoff - the pooled upper RID cutoff
+	 * @param staging - folder the output is written to
+	 * @param pool - threads to process the files on
+	 * @param listener - receives progress after each file is written
+	 * @param report - records the time of each stage
+	 * @throws IOException
+	 */
+	void perImageCutoffs(List<Matrix> allFiles, double pooledCutoff, File staging, ExecutorService pool,
+			AnalysisListener listener, RunReport report) throws IOException {
+		int totalFiles = allFiles.size();
+		CutoffComparison comparison = new CutoffComparison(allFiles);
+		for (int i=0; i<totalFiles; i++) {
+			comparison.pooled(i, allFiles.get(i));
+		}
+		File folder = new File(staging, PER_IMAGE);
+		if (!folder.mkdir()) {
+			throw new FileNotFoundException("oE1");
+		}
+		String directory = folder.getPath() + File.separator;
+
+		//screens each image with its own cutoff
+		double lowerCutoff = config.getLowerCutoff();
+		SmallestValues[] smallest = new SmallestValues[totalFiles];
+		boolean[] own = new boolean[totalFiles];
+		List<Callable<Integer>> screens = new ArrayList<Callable<Integer>>();
+		for (int i=0; i<totalFiles; i++) {
+			Matrix next = allFiles.get(i);
+			int index = i;
+			screens.add(() -> {
+				long started = report.start();
+				own[index] = next.getNumCells() >= MIN_IMAGE_ROIS;
+				double cutoff = own[index] ? imageCutoff(next) : pooledCutoff;
+				int frags = next.findOutliers(lowerCutoff, cutoff);
+				if (config.isRelative()) {
+					smallest[index] = next.smallestAreas(config.getSmallest());
+				}
+				report.stop("Screening per image", started, next.getNumCells(), 0, 0);
+				return frags;
+			});
+		}
+		int totFrags = 0;
+		for (int frags: runAll(pool, screens)){
+			totFrags += frags;
+		}
+
+		checkCancelled(listener);
+		double average = config.isRelative() ? normalize(smallest, config.getSmallest()) : Double.NaN;
+
+		AtomicInteger filesWritten = new AtomicInteger();
+		AtomicLong roisWritten = new AtomicLong();
+		List<Callable<Void>> writes = new ArrayList<Callable<Void>>();
+		for (int i=0; i<totalFiles; i++) {
+			Matrix m = allFiles.get(i);
+			int index = i;
+			writes.add(() -> {
+				checkCancelled(listener);
+				long started = report.start();
+				m.update(average, config.getCDcutoff1(), config.getCDcutoff2(), config.getCDcutoff3(), config.getCDcutoff4(),
+						config.getNETcutoff(), config.isRelative(), config.getAbsArea(), config.isHistograms());
+				report.stop("Updating per image", started, m.getNumCells(), 0, 0);
+
+				started = report.start();
+				m.createCSV(directory);
+				report.stop("Writing per image", started, m.getNumCells(), 0,
+						report.length(new File(folder, m.getName())));
+				comparison.image(index, m, own[index]);
+				listener.progress("Writing per image", filesWritten.incrementAndGet(), totalFiles,
+						roisWritten.addAndGet(m.getNumCells()));
+				return null;
+			});
+		}
+		runAll(pool, writes);
+
+		long start = report.start();
+		totalCSV(allFiles, totFrags, folder);
+		comparison.write(staging);
+		report.stop("Summary per image", start);
+	}
+
+
+
+
+	/**
+	 * @param m - an image
+	 * @return the upper RID cutoff from the RIDs of the image alone
+	 */
+	double imageCutoff(Matrix m) {
+		ExclusionStrategy exclusion = config.getExclusion();
+		QuantileSketch sketch = exclusion.usesSketch() ? m.getRIDSketch() : null;
+		QuantileSketch deviations = exclusion.usesDeviations() ? m.getRIDDeviations(sketch.getMedian()) : null;
+		return exclusion.upperCutoff(m.getRIDStats(), sketch, deviations, config.getUpperCutoff());
+	}
+
+
+
+
+	/**
+	 * Stops the run if the listener has cancelled it.
+	 * 
+	 * @param listener - listener of the current run
+	 * @throws CancellationException if cancelled
+	 */
+	static void checkCancelled(AnalysisListener listener) {
+		if (listener.isCancelled()) {
+			throw new CancellationException("Analysis cancelled");
+		}
+	}
+
+
+
+
+	/**
+	 * Creates the folder a run's output is written to before it is
+	 * moved into the output directory.
+	 * 
+	 * @param outputFolder - the output directory
+	 * @return the staging folder
+	 * @throws FileNotFoundException if it could not be created
+	 */
+	static File createStaging(File outputFolder) throws FileNotFoundException {
+		try {
+			return Files.createTempDirectory(outputFolder.toPath(), ".DANA_").toFile();
+		} catch (IOException e1) {
+			throw new FileNotFoundException("oE1");
+		}
+	}
+
+
+
+
+	/**
+	 * Moves every file in the staging folder to the output directory,
+	 * replacing files of the same name, then removes the staging folder.
+	 * 
+	 * @param staging - folder the output was written to
+	 * @param outputFolder - the output directory
+	 * @throws IOException
+	 */
+	static void moveAll(File staging, File outputFolder) throws IOException {
+		for (File f: staging.listFiles()) {
+			//a folder replaces the one from an earlier run as a whole
+			File old = new File(outputFolder, f.getName());
+			if (f.isDirectory() && old.isDirectory()) {
+				deleteAll(old);
+			}
+			try {
+				Files.move(f.toPath(), new File(outputFolder, f.getName()).toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(f.toPath(), new File(outputFolder, f.getName()).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		Files.delete(staging.toPath());
+	}
+
+
+
+
+	/**
+	 * Removes the staging folder and everything written to it,
+	 * including the folders written inside it.
+	 * 
+	 * @param staging - folder the output was written to
+	 */
+	static void deleteAll(File staging) {
+		File[] written = staging.listFiles();
+		if (written != null) {
+			for (File f: written) {
+				if (f.isDirectory()) {
+					deleteAll(f);
+				}
+				else {
+					f.delete();
+				}
+			}
+		}
+		staging.delete();
+	}
+
+
+
+
+	/**
+	 * Runs tasks on the pool and waits for all of them to finish.
+	 * The first failure is rethrown as it was thrown by the task.
+	 * 
+	 * @param pool - threads to run the tasks on
+	 * @param tasks - tasks to run
+	 * @return results of the tasks in the order they were given
+	 * @throws IOException
+	 */
+	static <T> List<T> runAll(ExecutorService pool, List<Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			for (Future<T> f: pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("analysis interrupted");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		return results;
+	}
+
+
+	
+
+	/**
+	 * Finds average of the k smallest non-outlier cells by merging
+	 * the smallest cells of each file.
+	 * 
+	 * @param perFile - the smallest non-outlier areas of each file
+	 * @param k - number of cells to average
+	 * @return the average of the k smallest cells
+	 */
+	public static double normalize(SmallestValues[] perFile, int k) {
+		SmallestValues all = new SmallestValues(k);
+		for (SmallestValues x: perFile){
+			all.addAll(x);
+		}
+		return all.average();
+	}
+
+
+	
+	
+	/**
+	 * Iterates through the raw integrated density of all cells
+	 * within file folder to create cutoffs based on user specified
+	 * values, by the config's exclusion strategy. 
+	 * 
+	 * @param allFiles - every matrix in the sample
+	 * @return the upper RID cutoff
+	 */
+	public double findCutoffs(List<Matrix> allFiles) {
+		ExclusionStrategy exclusion = config.getExclusion();
+		QuantileSketch sketch = exclusion.usesSketch() ? ridSketch(allFiles) : null;
+		QuantileSketch deviations = exclusion.usesDeviations() ? ridDeviations(allFiles, sketch.getMedian()) : null;
+		return upperCutoff(ridStats(allFiles), sketch, deviations);
+	}
+
+
+
+
+	/**
+	 * @param allRID - mean and variance of the RID of all cells
+	 * @param sketch - quantiles of the RID of all cells, null unless
+	 * 					the exclusion strategy uses them
+	 * @param deviations - quantiles of the RID of all cells less the
+	 * 					median of sketch, null unless the exclusion
+	 * 					strategy uses them
+	 * @return the upper RID cutoff
+	 */
+	double upperCutoff(RunningStats allRID, QuantileSketch sketch, QuantileSketch deviations) {
+		return config.getExclusion().upperCutoff(allRID, sketch, deviations, config.getUpperCutoff());
+	}
+
+
+
+
+	/**
+	 * Combines the RID stats each file kept while it was read.
+	 * 
+	 * @param allFiles - every matrix in the sample
+	 * @return mean and variance of the RID of all cells
+	 */
+	static RunningStats ridStats(List<Matrix> allFiles) {
+		RunningStats allRID = new RunningStats();
+		for (Matrix m: allFiles) {
+			allRID.addAll(m.getRIDStats()); }
+		return allRID;
+	}
+
+
+
+
+	/**
+	 * Combines the RID sketches of each file, sketching any file
+	 * that was not sketched as it was read.
+	 * 
+	 * @param allFiles - every matrix in the sample
+	 * @return quantiles of the RID of all cells
+	 */
+	static QuantileSketch ridSketch(List<Matrix> allFiles) {
+		QuantileSketch allRID = new QuantileSketch();
+		for (Matrix m: allFiles) {
+			allRID.addAll(m.getRIDSketch());
+		}
+		return allRID;
+	}
+
+
+
+
+	/**
+	 * Sketches the RID of every cell less a center, a second pass
+	 * over the RIDs once their sketch gives the center.
+	 * 
+	 * @param allFiles - every matrix in the sample
+	 * @param center - value taken from every RID, the median of their sketch
+	 * @return quantiles of the RID less center of all cells
+	 */
+	static QuantileSketch ridDeviations(List<Matrix> allFiles, double center) {
+		QuantileSketch deviations = new QuantileSketch();
+		for (Matrix m: allFiles) {
+			deviations.addAll(m.getRIDDeviations(center));
+		}
+		return deviations;
+	}
+
+
+	
+
+	/**
+	 * Exports the averages of all files by treatment into 
+	 * separate CSV file called "Summary"
+	 * 
+	 * @param allFiles - every matrix in the sample
+	 * @param totalFragments - the number of total fragments in the sample.
+	 * 						Used for determining if minRID optimization needed.
+	 * @param directory - folder Summary.csv is written to
+	 * @return the values written to Summary.csv
+	 * @throws FileNotFoundException
+	 */
+	SampleSummary totalCSV(List<Matrix> allFiles, int totalFragments, File directory) throws FileNotFoundException {
+		//combines the totals each file kept during update, in directory order
+		GroupStats treatments = new GroupStats();
+		GroupStats nonTreatment = new GroupStats();
+		List<String> names = new ArrayList<String>();
+		List<Integer> fragments = new ArrayList<Integer>();
+		List<GroupStats> totals = new ArrayList<GroupStats>();
+		for (Matrix m: allFiles){
+			names.add(m.getName());
+			fragments.add(m.getFragments());
+			totals.add(m.getTotals());
+			if (m.isTreatment()){
+				treatments.addAll(m.getTotals());
+			}
+			else {
+				nonTreatment.addAll(m.getTotals());
+			}
+		}
+
+		//Writes Files
+		SampleSummary summary = SampleSummary.fromGroups(config.getTreatment(), treatments, nonTreatment);
+		summary.setFragments(names, fragments, totalFragments);
+		summary.write(directory);
+
+		//optional summary of any number of groups
+		if (config.getGroups() != null) {
+			config.getGroups().write(names, totals, directory);
+		}
+
+		//optional histograms counted during update
+		if (config.isHistograms()) {
+			Distributions.write(names, totals, config.getTreatment(), treatments, nonTreatment, config.getGroups(), directory);
+		}
+		return summary;
+	}
+}
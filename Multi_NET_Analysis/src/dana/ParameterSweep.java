@@ -0,0 +1,418 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Evaluates every combination of a grid of cutoff values on one
+ * sample while reading its files only once.
+ *
+ * The matrices are never modified. For each pair of upper and lower
+ * cutoffs the files are screened in parallel and the relative areas
+ * of the non-outlier ROIs are sorted once; every NET and DNA
+ * decondensation cutoff is then counted with a binary search. The
+ * results are written to Sweep.csv, one row per combination. The
+ * per-image output of every combination can also be written, which
+ * runs the full analysis for each one.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class ParameterSweep {
+
+	final AnalysisConfig config;	//parameters that are not swept
+	final double[] upperValues, lowerValues;	//RID cutoffs to try
+	final double[] CD1values, CD2values, CD3values, CD4values;	//DNA decondensation cutoffs to try
+	final double[] NETvalues;		//NET cutoffs to try
+	final boolean writeOutputs;		//whether to write per-image output for every combination
+
+
+
+
+	/**
+	 * One row of Sweep.csv.
+	 */
+	static class Combination {
+		double upper, lower, CD1, CD2, CD3, CD4, NET;	//the cutoffs
+		double upperRID;			//RID above which a ROI is a multiple
+		double normalizedTo;		//area relative areas are computed from
+		int fragments, multiples;	//outliers below and above the cutoffs
+		int treatmentCells, nonTreatmentCells, combinedCells;
+		double treatmentNETosis, nonTreatmentNETosis, combinedNETosis;
+		double CD1percent, CD2percent, CD3percent, CD4percent;
+	}
+
+
+
+
+	/**
+	 * Relative areas of the non-outlier ROIs for one pair of RID cutoffs.
+	 */
+	static class Screen {
+		double upperRID, lower, normalizedTo;
+		AtomicInteger fragments = new AtomicInteger();
+		AtomicInteger multiples = new AtomicInteger();
+		int treatmentCells, nonTreatmentCells;	//non-outliers, as counted by Summary.csv
+		double[] treatmentAreas, nonTreatmentAreas;	//sorted relative areas, NaN removed
+	}
+
+
+
+
+	/**
+	 * @param c - parameters that are not swept
+	 * @param upper - upper elimination cutoff parameters
+	 * @param lower - lower cutoff values
+	 * @param CD1 - DNA decondensation cutoff 1 values
+	 * @param CD2 - DNA decondensation cutoff 2 values
+	 * @param CD3 - DNA decondensation cutoff 3 values
+	 * @param CD4 - DNA decondensation cutoff 4 values
+	 * @param Net - NET cutoff values
+	 * @param outputs - whether to write per-image output for every combination
+	 */
+	public ParameterSweep(AnalysisConfig c, double[] upper, double[] lower, double[] CD1, double[] CD2,
+			double[] CD3, double[] CD4, double[] Net, boolean outputs) {
+		config = c;
+		upperValues = upper;
+		lowerValues = lower;
+		CD1values = CD1;
+		CD2values = CD2;
+		CD3values = CD3;
+		CD4values = CD4;
+		NETvalues = Net;
+		writeOutputs = outputs;
+	}
+
+
+
+
+	/**
+	 * Reads every .csv file in a folder and evaluates every combination.
+	 *
+	 * @param input - input file path
+	 * @param output - output filepath
+	 * @param listener - receives progress after each file is read and
+	 * 					after each pair of RID cutoffs, may cancel the sweep
+	 * @return every combination, in the order written to Sweep.csv
+	 * @throws IOException
+	 * @throws CancellationException if the listener cancelled the sweep
+	 */
+	public List<Combination> run(String input, String output, AnalysisListener listener) throws IOException {
+		if (!new File(output).isDirectory()) {
+			throw new FileNotFoundException("oE1");
+		}
+
+		Multi_NET_Analysis engine = new Multi_NET_Analysis(config);
+		ExecutorService pool = Executors.newFixedThreadPool(config.getWorkers());
+		try {
+			List<Matrix> allFiles = engine.readAll(input, pool, listener);
+			RunningStats rid = Multi_NET_Analysis.ridStats(allFiles);
+			QuantileSketch sketch = config.getExclusion().usesSketch() ? Multi_NET_Analysis.ridSketch(allFiles) : null;
+			QuantileSketch deviations = config.getExclusion().usesDeviations()
+					? Multi_NET_Analysis.ridDeviations(allFiles, sketch.getMedian()) : null;
+			long rois = rid.getCount();
+
+			List<Combination> results = new ArrayList<Combination>();
+			int pairs = upperValues.length * lowerValues.length;
+			int done = 0;
+			for (double upper: upperValues) {
+				double upperRID = config.getExclusion().upperCutoff(rid, sketch, deviations, upper);
+				for (double lower: lowerValues) {
+					Multi_NET_Analysis.checkCancelled(listener);
+					Screen s = screen(allFiles, upperRID, lower, pool);
+					for (double NET: NETvalues) {
+						for (double CD1: CD1values) {
+							for (double CD2: CD2values) {
+								for (double CD3: CD3values) {
+									for (double CD4: CD4values) {
+										results.add(evaluate(s, upper, lower, CD1, CD2, CD3, CD4, NET));
+									}
+								}
+							}
+						}
+					}
+					done++;
+					listener.progress("Sweeping", done, pairs, rois*done);
+				}
+			}
+			write(results, new File(output, "Sweep.csv"));
+
+			//the full analysis modifies the matrices, so one combination at a time
+			if (writeOutputs) {
+				for (Combination c: results) {
+					Multi_NET_Analysis.checkCancelled(listener);
+					File folder = new File(output, folderName(c));
+					if (!folder.isDirectory() && !folder.mkdirs()) {
+						throw new FileNotFoundException("oE1");
+					}
+					AnalysisConfig combination = config.withCutoffs(c.upper, c.lower, c.CD1, c.CD2,
+							c.CD3, c.CD4, c.NET);
+					new Multi_NET_Analysis(combination).analyze(allFiles, folder.getPath() + File.separator,
+							pool, listener);
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+
+
+
+	/**
+	 * Finds the outliers and relative areas of every ROI for one pair
+	 * of RID cutoffs, the same way Matrix.findOutliers and
+	 * Matrix.update do.
+	 *
+	 * @param allFiles - every matrix in the sample
+	 * @param upperRID - RID at or above which a ROI is a multiple
+	 * @param lower - RID at or below which a ROI is a fragment
+	 * @param pool - threads to screen the files on
+	 * @return the relative areas
+	 * @throws IOException
+	 */
+	private Screen screen(List<Matrix> allFiles, double upperRID, double lower, ExecutorService pool)
+			throws IOException {
+		Screen s = new Screen();
+		s.upperRID = upperRID;
+		s.lower = lower;
+
+		//finds the area to normalize to
+		if (config.isRelative()) {
+			List<Callable<SmallestValues>> smallest = new ArrayList<Callable<SmallestValues>>();
+			for (Matrix m: allFiles) {
+				smallest.add(() -> {
+					SmallestValues kept = new SmallestValues(config.getSmallest());
+					for (int i=0; i<m.numCells; i++) {
+						double q = m.columns[7][i];
+						if (!(q >= upperRID) && !(q <= lower)) {
+							kept.add(m.columns[1][i]);
+						}
+					}
+					return kept;
+				});
+			}
+			s.normalizedTo = Multi_NET_Analysis.normalize(
+					Multi_NET_Analysis.runAll(pool, smallest).toArray(new SmallestValues[0]), config.getSmallest());
+		}
+		else {
+			s.normalizedTo = config.getAbsArea();
+		}
+
+		//computes the rounded relative area of each non-outlier
+		double average = s.normalizedTo;
+		List<Callable<double[]>> areas = new ArrayList<Callable<double[]>>();
+		for (Matrix m: allFiles) {
+			areas.add(() -> {
+				double[] relative = new double[m.numCells];
+				int n = 0;
+				int multiples = 0;
+				int fragments = 0;
+				for (int i=0; i<m.numCells; i++) {
+					double q = m.columns[7][i];
+					if (q >= upperRID) {
+						multiples++;
+					}
+					else if (q <= lower) {
+						fragments++;
+					}
+					else {
+						double relArea = (m.columns[1][i])/average;
+						relArea = (double) Math.round(relArea*100);
+						relative[n++] = relArea/100;
+					}
+				}
+				s.multiples.addAndGet(multiples);
+				s.fragments.addAndGet(fragments);
+				return Arrays.copyOf(relative, n);
+			});
+		}
+		List<double[]> perFile = Multi_NET_Analysis.runAll(pool, areas);
+
+		//pools the relative areas by treatment
+		int treatmentTotal = 0;
+		int nonTreatmentTotal = 0;
+		for (int f=0; f<allFiles.size(); f++) {
+			if (allFiles.get(f).isTreatment()) {
+				treatmentTotal += perFile.get(f).length;
+			}
+			else {
+				nonTreatmentTotal += perFile.get(f).length;
+			}
+		}
+		double[] treatment = new double[treatmentTotal];
+		double[] nonTreatment = new double[nonTreatmentTotal];
+		int t = 0;
+		int o = 0;
+		for (int f=0; f<allFiles.size(); f++) {
+			double[] relative = perFile.get(f);
+			if (allFiles.get(f).isTreatment()) {
+				System.arraycopy(relative, 0, treatment, t, relative.length);
+				t += relative.length;
+			}
+			else {
+				System.arraycopy(relative, 0, nonTreatment, o, relative.length);
+				o += relative.length;
+			}
+		}
+		s.treatmentCells = treatmentTotal;
+		s.nonTreatmentCells = nonTreatmentTotal;
+		s.treatmentAreas = sortedWithoutNaN(treatment);
+		s.nonTreatmentAreas = sortedWithoutNaN(nonTreatment);
+		return s;
+	}
+
+
+
+
+	/**
+	 * Counts NETs and decondensed ROIs for one combination of cutoffs.
+	 * %NETosis uses the same comparison and denominators as Summary.csv
+	 * and %CD the same comparison as the per-image averages.
+	 *
+	 * @return the row for this combination
+	 */
+	private static Combination evaluate(Screen s, double upper, double lower, double CD1, double CD2,
+			double CD3, double CD4, double NET) {
+		Combination c = new Combination();
+		c.upper = upper;
+		c.lower = lower;
+		c.CD1 = CD1;
+		c.CD2 = CD2;
+		c.CD3 = CD3;
+		c.CD4 = CD4;
+		c.NET = NET;
+		c.upperRID = s.upperRID;
+		c.normalizedTo = s.normalizedTo;
+		c.fragments = s.fragments.get();
+		c.multiples = s.multiples.get();
+		c.treatmentCells = s.treatmentCells;
+		c.nonTreatmentCells = s.nonTreatmentCells;
+		c.combinedCells = s.treatmentCells + s.nonTreatmentAreas.length;
+
+		int treatmentNETs = countAbove(s.treatmentAreas, NET, false);
+		int nonTreatmentNETs = countAbove(s.nonTreatmentAreas, NET, false);
+		c.treatmentNETosis = ((double) treatmentNETs/c.treatmentCells)*100;
+		c.nonTreatmentNETosis = ((double) nonTreatmentNETs/c.nonTreatmentCells)*100;
+		c.combinedNETosis = ((double) (treatmentNETs+nonTreatmentNETs)/(c.combinedCells))*100;
+
+		int cells = s.treatmentCells + s.nonTreatmentCells;
+		c.CD1percent = (double) countAtLeast(s, CD1)*100/cells;
+		c.CD2percent = (double) countAtLeast(s, CD2)*100/cells;
+		c.CD3percent = (double) countAtLeast(s, CD3)*100/cells;
+		c.CD4percent = (double) countAtLeast(s, CD4)*100/cells;
+		return c;
+	}
+
+
+
+
+	/**
+	 * @return number of ROIs in either group with a relative area at least the cutoff
+	 */
+	private static int countAtLeast(Screen s, double cutoff) {
+		return countAbove(s.treatmentAreas, cutoff, true) + countAbove(s.nonTreatmentAreas, cutoff, true);
+	}
+
+
+
+
+	/**
+	 * @param sorted - values sorted low to high
+	 * @param cutoff - the cutoff
+	 * @param inclusive - whether values equal to the cutoff are counted
+	 * @return number of values above the cutoff
+	 */
+	static int countAbove(double[] sorted, double cutoff, boolean inclusive) {
+		//finds the first value that is counted
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (inclusive ? sorted[mid] >= cutoff : sorted[mid] > cutoff) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		return sorted.length - low;
+	}
+
+
+
+
+	/**
+	 * @param values - values to sort, sorted in place
+	 * @return the sorted values without NaN, which never pass a cutoff
+	 */
+	private static double[] sortedWithoutNaN(double[] values) {
+		Arrays.sort(values);
+		int n = values.length;
+		while (n > 0 && Double.isNaN(values[n-1])) {
+			n--;
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+
+
+
+
+	/**
+	 * @param c - a combination
+	 * @return name of the folder its per-image output is written to
+	 */
+	static String folderName(Combination c) {
+		return "U" + c.upper + "_L" + c.lower + "_NET" + c.NET
+				+ "_CD" + c.CD1 + "-" + c.CD2 + "-" + c.CD3 + "-" + c.CD4;
+	}
+
+
+
+
+	/**
+	 * Writes Sweep.csv
+	 *
+	 * @param results - every combination
+	 * @param file - file to write to
+	 * @throws IOException
+	 */
+	private void write(List<Combination> results, File file) throws IOException {
+		String t = config.getTreatment();
+		try (CSVWriter out = new CSVWriter(file)) {
+			out.write("Upper Cutoff,Lower Cutoff,NET Cutoff,CD Cutoff 1,CD Cutoff 2,CD Cutoff 3,CD Cutoff 4,"
+					+ "Upper RID Cutoff,Normalized To,Fragments,Multiples,"
+					+ "Total Cells (" + t + "),Total Cells (other),Total Cells (combined),"
+					+ "% NETosis (" + t + "),% NETosis (other),% NETosis (combined),"
+					+ "% CD 1,% CD 2,% CD 3,% CD 4,\n");
+			for (Combination c: results) {
+				double[] row = {c.upper, c.lower, c.NET, c.CD1, c.CD2, c.CD3, c.CD4,
+						c.upperRID, c.normalizedTo};
+				for (double value: row) {
+					out.write(value);
+					out.write(',');
+				}
+				out.write(c.fragments + "," + c.multiples + ","
+						+ c.treatmentCells + "," + c.nonTreatmentCells + "," + c.combinedCells + ",");
+				row = new double[] {c.treatmentNETosis, c.nonTreatmentNETosis, c.combinedNETosis,
+						c.CD1percent, c.CD2percent, c.CD3percent, c.CD4percent};
+				for (double value: row) {
+					out.write(value);
+					out.write(',');
+				}
+				out.write('\n');
+			}
+		}
+	}
+}
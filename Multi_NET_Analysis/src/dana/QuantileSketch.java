@@ -0,0 +1,261 @@
+package dana;
+
+import java.util.Arrays;
+
+
+/**
+ * Approximate quantiles of a stream of values, kept as counts in
+ * buckets whose bounds grow by a constant factor, so any quantile is
+ * found to within ACCURACY of its value without sorting or keeping
+ * the values. Adding a value is O(1), and sketches of separate files
+ * are combined by adding their counts, giving the same sketch as if
+ * every value had been added to one.
+ *
+ * Negative values are kept in buckets of their own, by their size, and
+ * values nearer zero than Double.MIN_NORMAL are counted together as zero.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class QuantileSketch {
+
+	static final double ACCURACY = 0.01;		//relative error of a quantile
+	private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	private final Buckets positives = new Buckets();	//values above zero
+	private final Buckets negatives = new Buckets();	//values below zero, by the bucket of minus the value
+	private long zeros;						//values counted as zero
+	private long count;						//values added, NaN excepted
+
+
+
+
+	/**
+	 * Counts of values in consecutive buckets.
+	 */
+	private static class Buckets {
+		long[] counts = new long[0];	//values in each bucket, from bucket offset up
+		int offset;						//index of the bucket counts[0] holds
+
+		/**
+		 * Counts a value of at least Double.MIN_NORMAL.
+		 */
+		void add(double value) {
+			int bucket = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+			cover(bucket, bucket);
+			counts[bucket - offset]++;
+		}
+
+		/**
+		 * Adds the counts of other buckets to these.
+		 */
+		void addAll(Buckets other) {
+			if (other.counts.length == 0) {
+				return;
+			}
+			cover(other.offset, other.offset + other.counts.length - 1);
+			for (int i=0; i<other.counts.length; i++) {
+				counts[other.offset + i - offset] += other.counts[i];
+			}
+		}
+
+		/**
+		 * Grows the buckets to include those from first to last.
+		 */
+		private void cover(int first, int last) {
+			if (counts.length == 0) {
+				counts = new long[last - first + 1];
+				offset = first;
+				return;
+			}
+			int end = offset + counts.length - 1;
+			if (first >= offset && last <= end) {
+				return;
+			}
+			int from = Math.min(first, offset);
+			int to = Math.max(last, end);
+			//grows by at least half so adding values in order is not quadratic
+			int size = Math.max(to - from + 1, counts.length + counts.length/2);
+			int newOffset = first < offset ? to - size + 1 : from;
+			long[] grown = new long[size];
+			System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+			counts = grown;
+			offset = newOffset;
+		}
+	}
+
+
+
+
+	/**
+	 * Adds a value. NaN is ignored.
+	 *
+	 * @param value - the value
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		count++;
+		if (value >= Double.MIN_NORMAL) {
+			positives.add(value);
+		}
+		else if (value <= -Double.MIN_NORMAL) {
+			negatives.add(-value);
+		}
+		else {
+			zeros++;
+		}
+	}
+
+
+
+
+	/**
+	 * Combines the values of another sketch into this one.
+	 *
+	 * @param other - sketch to merge in
+	 */
+	public void addAll(QuantileSketch other) {
+		count += other.count;
+		zeros += other.zeros;
+		positives.addAll(other.positives);
+		negatives.addAll(other.negatives);
+	}
+
+
+
+
+	/**
+	 * @param bucket - index of a bucket
+	 * @return the value a bucket stands for, within ACCURACY of every value in it
+	 */
+	private static double value(int bucket) {
+		return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+	}
+
+
+
+
+	/**
+	 * @return number of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+
+
+
+	/**
+	 * @param q - the quantile, from 0 to 1
+	 * @return the value with q of the values below it, NaN if there are no values
+	 */
+	public double getQuantile(double q) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		long rank = Math.min((long) (q * (count - 1)), count - 1);
+
+		//most negative first, so from the largest bucket of negatives down
+		long seen = 0;
+		for (int i=negatives.counts.length-1; i>=0; i--) {
+			seen += negatives.counts[i];
+			if (seen > rank) {
+				return -value(negatives.offset + i);
+			}
+		}
+		seen += zeros;
+		if (seen > rank) {
+			return 0;
+		}
+		for (int i=0; i<positives.counts.length; i++) {
+			seen += positives.counts[i];
+			if (seen > rank) {
+				return value(positives.offset + i);
+			}
+		}
+		return value(positives.offset + positives.counts.length - 1);
+	}
+
+
+
+
+	/**
+	 * @return the median, NaN if there are no values
+	 */
+	public double getMedian() {
+		return getQuantile(0.5);
+	}
+
+
+
+
+	/**
+	 * Finds the median absolute deviation from a center from the
+	 * buckets, sorting one deviation per bucket rather than one per
+	 * value. Each value is taken as its bucket's, which is within
+	 * ACCURACY of the value itself, so the deviations are only accurate
+	 * to a fraction of their size when the values are near zero next to
+	 * their spread. To find the MAD of values far from zero, sketch the
+	 * values less an estimate of their median and pass the median of
+	 * that sketch as the center.
+	 *
+	 * @param center - value the deviations are taken from
+	 * @return the median absolute deviation from center, NaN if there
+	 * 			are no values
+	 */
+	public double getMAD(double center) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		int used = zeros > 0 ? 1 : 0;
+		for (long c: positives.counts) {
+			if (c > 0) {
+				used++;
+			}
+		}
+		for (long c: negatives.counts) {
+			if (c > 0) {
+				used++;
+			}
+		}
+
+		//deviation of each bucket, sorted with its count
+		double[] deviations = new double[used];
+		long[] weights = new long[used];
+		Integer[] order = new Integer[used];
+		int n = 0;
+		if (zeros > 0) {
+			deviations[n] = Math.abs(center);
+			weights[n++] = zeros;
+		}
+		for (int i=0; i<positives.counts.length; i++) {
+			if (positives.counts[i] > 0) {
+				deviations[n] = Math.abs(value(positives.offset + i) - center);
+				weights[n++] = positives.counts[i];
+			}
+		}
+		for (int i=0; i<negatives.counts.length; i++) {
+			if (negatives.counts[i] > 0) {
+				deviations[n] = Math.abs(-value(negatives.offset + i) - center);
+				weights[n++] = negatives.counts[i];
+			}
+		}
+		for (int i=0; i<used; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(deviations[a], deviations[b]));
+
+		long rank = (count - 1) / 2;
+		long seen = 0;
+		for (int i: order) {
+			seen += weights[i];
+			if (seen > rank) {
+				return deviations[i];
+			}
+		}
+		return deviations[order[used - 1]];
+	}
+}
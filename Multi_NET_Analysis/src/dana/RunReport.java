@@ -0,0 +1,235 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Records where the time of a run goes and writes it to Run_Report.csv
+ * next to Summary.csv. Each stage of the analysis (reading, screening,
+ * writing...) is timed per call, and per file where the stage works
+ * one file at a time, along with the ROIs and bytes it handled.
+ *
+ * The report has one row per stage, in the order the stages ran, and a
+ * Total row. Wall is the time from the first call of a stage starting
+ * to the last one ending; Busy adds up every call, so it exceeds Wall
+ * when files are processed on several threads. The percentiles are of
+ * the time of a single call, i.e. of one file for per-file stages.
+ *
+ * A disabled report records nothing, and start() does not even read
+ * the clock, so timing can be left in the hot paths.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class RunReport {
+
+	static final RunReport DISABLED = new RunReport(false);
+	static final String FILE_NAME = "Run_Report.csv";
+
+	final boolean enabled;
+	final long created;		//when the run started
+	final Map<String, Stage> stages = new LinkedHashMap<String, Stage>();	//stages in the order they ran
+
+
+
+
+	/**
+	 * Totals of one stage.
+	 */
+	static class Stage {
+		int calls;
+		long busy;						//nanoseconds spent in all calls
+		long firstStart = Long.MAX_VALUE;
+		long lastEnd = Long.MIN_VALUE;
+		long rois;
+		long bytesRead, bytesWritten;
+		long[] times = new long[16];	//nanoseconds of each call
+
+		synchronized void add(long start, long end, long r, long read, long written) {
+			if (calls == times.length) {
+				times = Arrays.copyOf(times, calls*2);
+			}
+			times[calls++] = end - start;
+			busy += end - start;
+			firstStart = Math.min(firstStart, start);
+			lastEnd = Math.max(lastEnd, end);
+			rois += r;
+			bytesRead += read;
+			bytesWritten += written;
+		}
+	}
+
+
+
+
+	/**
+	 * @param on - whether anything is recorded
+	 */
+	private RunReport(boolean on) {
+		enabled = on;
+		created = on ? System.nanoTime() : 0L;
+	}
+
+
+
+
+	/**
+	 * @param on - whether the report is wanted
+	 * @return a new report for a run, or DISABLED
+	 */
+	public static RunReport create(boolean on) {
+		return on ? new RunReport(true) : DISABLED;
+	}
+
+
+
+
+	/**
+	 * @return the start time to pass to stop(), 0 if disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+
+
+
+	/**
+	 * Records one call of a stage.
+	 *
+	 * @param stage - name of the stage
+	 * @param start - value start() returned when the call began
+	 * @param rois - ROIs handled by the call
+	 * @param bytesRead - bytes read by the call
+	 * @param bytesWritten - bytes written by the call
+	 */
+	public void stop(String stage, long start, long rois, long bytesRead, long bytesWritten) {
+		if (!enabled) {
+			return;
+		}
+		long end = System.nanoTime();
+		Stage s;
+		synchronized (stages) {
+			s = stages.get(stage);
+			if (s == null) {
+				s = new Stage();
+				stages.put(stage, s);
+			}
+		}
+		s.add(start, end, rois, bytesRead, bytesWritten);
+	}
+
+
+
+
+	/**
+	 * Records one call of a stage that handled no ROIs or bytes.
+	 *
+	 * @param stage - name of the stage
+	 * @param start - value start() returned when the call began
+	 */
+	public void stop(String stage, long start) {
+		stop(stage, start, 0, 0, 0);
+	}
+
+
+
+
+	/**
+	 * @param file - a file
+	 * @return its size, or 0 without looking if disabled
+	 */
+	public long length(File file) {
+		return enabled ? file.length() : 0L;
+	}
+
+
+
+
+	/**
+	 * Writes Run_Report.csv, unless disabled.
+	 *
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	public void write(File directory) throws FileNotFoundException {
+		if (!enabled) {
+			return;
+		}
+		long end = System.nanoTime();
+		PrintWriter pw = new PrintWriter(new File(directory, FILE_NAME));
+		StringBuilder sb = new StringBuilder();
+		sb.append("Stage,Calls,Wall (ms),Busy (ms),ROIs,ROIs/s,Bytes Read,Bytes Written,"
+				+ "p50 (ms),p90 (ms),p99 (ms),Max (ms),");
+		sb.append('\n');
+		long busy = 0, rois = 0, read = 0, written = 0;
+		int calls = 0;
+		synchronized (stages) {
+			for (Map.Entry<String, Stage> entry: stages.entrySet()) {
+				Stage s = entry.getValue();
+				synchronized (s) {
+					long[] times = Arrays.copyOf(s.times, s.calls);
+					Arrays.sort(times);
+					long wall = s.lastEnd - s.firstStart;
+					sb.append(entry.getKey() + ',' + s.calls + ',' + millis(wall) + ',' + millis(s.busy) + ',');
+					sb.append(s.rois + "," + perSecond(s.rois, wall) + ',' + s.bytesRead + ',' + s.bytesWritten + ',');
+					sb.append(millis(percentile(times, 50)) + "," + millis(percentile(times, 90)) + ','
+							+ millis(percentile(times, 99)) + ',' + millis(times[times.length-1]) + ',');
+					sb.append('\n');
+					calls += s.calls;
+					busy += s.busy;
+					rois = Math.max(rois, s.rois);
+					read += s.bytesRead;
+					written += s.bytesWritten;
+				}
+			}
+		}
+		long wall = end - created;
+		sb.append("Total," + calls + ',' + millis(wall) + ',' + millis(busy) + ',');
+		sb.append(rois + "," + perSecond(rois, wall) + ',' + read + ',' + written + ",,,,,");
+		sb.append('\n');
+		pw.write(sb.toString());
+		pw.close();
+	}
+
+
+
+
+	/**
+	 * @param sorted - call times in ascending order, at least one
+	 * @param p - percentile from 1 to 100
+	 * @return the nearest-rank percentile
+	 */
+	static long percentile(long[] sorted, int p) {
+		int rank = (int) Math.ceil(p/100.0*sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+
+
+
+	/**
+	 * @return nanoseconds as milliseconds
+	 */
+	static double millis(long nanos) {
+		return nanos/1e6;
+	}
+
+
+
+
+	/**
+	 * @return the rate, blank if no ROIs were handled
+	 */
+	static String perSecond(long rois, long nanos) {
+		if (rois == 0 || nanos <= 0) {
+			return "";
+		}
+		return String.valueOf(Math.round(rois/(nanos/1e9)));
+	}
+}
@@ -0,0 +1,141 @@
+package dana;
+
+/**
+ * Mean and variance of a stream of values, updated one value at a
+ * time with Welford's method so no values need to be kept. Partial
+ * results for separate files are combined with Chan's formula.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class RunningStats {
+
+	private long count;
+	private double mean;
+	private double m2;		//sum of squared differences from the mean
+
+
+
+
+	/**
+	 * Creates stats with no values.
+	 */
+	public RunningStats() {
+	}
+
+
+
+
+	/**
+	 * Restores stats saved with getCount, getRawMean and getM2.
+	 *
+	 * @param n - number of values
+	 * @param m - mean of the values
+	 * @param sumSquares - sum of squared differences from the mean
+	 */
+	RunningStats(long n, double m, double sumSquares) {
+		count = n;
+		mean = m;
+		m2 = sumSquares;
+	}
+
+
+
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value - the value
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta/count;
+		m2 += delta*(value - mean);
+	}
+
+
+
+
+	/**
+	 * Combines the values of another instance into this one.
+	 *
+	 * @param other - stats to merge in
+	 */
+	public void addAll(RunningStats other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			return;
+		}
+		long n = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta*other.count/n;
+		m2 += other.m2 + delta*delta*((double) count*other.count/n);
+		count = n;
+	}
+
+
+
+
+	/**
+	 * @return number of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+
+
+
+	/**
+	 * @return the mean, NaN if there are no values
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+
+
+
+	/**
+	 * @return the mean as stored, 0 if there are no values
+	 */
+	double getRawMean() {
+		return mean;
+	}
+
+
+
+
+	/**
+	 * @return sum of squared differences from the mean
+	 */
+	double getM2() {
+		return m2;
+	}
+
+
+
+
+	/**
+	 * @return the sample variance, NaN if there are fewer than 2 values
+	 */
+	public double getVariance() {
+		return count < 2 ? Double.NaN : m2/(count-1);
+	}
+
+
+
+
+	/**
+	 * @return the sample standard deviation
+	 */
+	public double getSD() {
+		return Math.sqrt(getVariance());
+	}
+}
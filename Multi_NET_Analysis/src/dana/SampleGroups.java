@@ -0,0 +1,273 @@
+package dana;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Splits the images of a sample into any number of named groups, such
+ * as the conditions of a dose-response plate, so that all of them are
+ * summarized by one run instead of one run per optional parameter.
+ *
+ * Groups are given either as patterns matched against file names or as
+ * a sample sheet naming the group of each file. A pattern containing
+ * * ? [ or { is a glob matched against the whole name; any other pattern
+ * matches names containing it, like the optional parameter. A file
+ * belongs to the first group it matches, and files that match none are
+ * summarized as "Other".
+ *
+ * The totals each file keeps during update are combined per group and
+ * written to Groups.csv, one row per group. Welch's t of each group
+ * compares its average area to that of the first group.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class SampleGroups {
+
+	static final String OTHER = "Other";	//group of files that match no group
+	static final String FILE_NAME = "Groups.csv";
+
+	final List<String> names = new ArrayList<String>();		//group names, in order
+	final List<PathMatcher> globs = new ArrayList<PathMatcher>();	//glob of each group, null if not a glob
+	final List<String> patterns = new ArrayList<String>();	//pattern of each group, null for a sample sheet
+	final Map<String, String> sheet = new LinkedHashMap<String, String>();	//group of each file named in a sample sheet
+
+
+
+
+	private SampleGroups() {
+	}
+
+
+
+
+	/**
+	 * Parses groups given as a comma separated list. Each item is a
+	 * pattern, or name=pattern to give the group another name.
+	 *
+	 * @param list - the groups, e.g. "Control=*_0uM*,Low=*_1uM*,High=*_10uM*"
+	 * @return the groups
+	 * @throws IllegalArgumentException if no groups are given or a name repeats
+	 */
+	public static SampleGroups fromPatterns(String list) {
+		SampleGroups groups = new SampleGroups();
+		for (String item: list.split(",")) {
+			item = item.trim();
+			if (item.isEmpty()) {
+				continue;
+			}
+			int equals = item.indexOf('=');
+			String name = equals < 0 ? item : item.substring(0, equals).trim();
+			String pattern = equals < 0 ? item : item.substring(equals+1).trim();
+			if (name.isEmpty() || pattern.isEmpty()) {
+				throw new IllegalArgumentException("Group without a name or pattern: \"" + item + "\"");
+			}
+			groups.add(name);
+			groups.patterns.add(pattern);
+			groups.globs.add(isGlob(pattern) ? FileSystems.getDefault().getPathMatcher("glob:" + pattern) : null);
+		}
+		if (groups.names.isEmpty()) {
+			throw new IllegalArgumentException("No groups given: \"" + list + "\"");
+		}
+		return groups;
+	}
+
+
+
+
+	/**
+	 * Reads a sample sheet, a .csv file with the name of an image's
+	 * file and its group on each line. The .csv extension of the file
+	 * name may be left out. Blank lines, lines starting with # and a
+	 * first line starting with "file" are skipped. Groups are listed in
+	 * the order they first appear.
+	 *
+	 * @param file - the sample sheet
+	 * @return the groups
+	 * @throws IOException if the sheet could not be read
+	 * @throws IllegalArgumentException if a line does not name a file and group
+	 */
+	public static SampleGroups fromSheet(File file) throws IOException {
+		SampleGroups groups = new SampleGroups();
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			int number = 0;
+			while ((line = in.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")
+						|| (number == 1 && line.toLowerCase().startsWith("file"))) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				if (fields.length < 2 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()) {
+					throw new IllegalArgumentException(file.getName() + " line " + number
+							+ ": expected a file name and group");
+				}
+				String fileName = fields[0].trim();
+				String group = fields[1].trim();
+				if (!groups.names.contains(group)) {
+					groups.add(group);
+					groups.patterns.add(null);
+					groups.globs.add(null);
+				}
+				groups.sheet.put(fileName.endsWith(".csv") ? fileName : fileName + ".csv", group);
+			}
+		}
+		if (groups.names.isEmpty()) {
+			throw new IllegalArgumentException(file.getName() + " does not list any files");
+		}
+		return groups;
+	}
+
+
+
+
+	/**
+	 * Adds a group name, which must not be used already.
+	 */
+	private void add(String name) {
+		if (names.contains(name) || name.equals(OTHER)) {
+			throw new IllegalArgumentException("Group \"" + name + "\" is given more than once");
+		}
+		names.add(name);
+	}
+
+
+
+
+	/**
+	 * @param pattern - a group pattern
+	 * @return true if it is matched as a glob
+	 */
+	static boolean isGlob(String pattern) {
+		for (char c: "*?[{".toCharArray()) {
+			if (pattern.indexOf(c) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
+
+	/**
+	 * @param fileName - name of a .csv file
+	 * @return the group the file belongs to, OTHER if none
+	 */
+	public String groupOf(String fileName) {
+		if (!sheet.isEmpty()) {
+			String group = sheet.get(fileName);
+			return group == null ? OTHER : group;
+		}
+		for (int i=0; i<names.size(); i++) {
+			PathMatcher glob = globs.get(i);
+			if (glob != null ? glob.matches(Paths.get(fileName)) : fileName.contains(patterns.get(i))) {
+				return names.get(i);
+			}
+		}
+		return OTHER;
+	}
+
+
+
+
+	/**
+	 * @return the group names in order, not including OTHER, which cannot be changed
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+
+
+
+
+	/**
+	 * Combines the totals of each file by group and writes Groups.csv.
+	 *
+	 * @param files - name of each file
+	 * @param totals - totals of each file, in the same order
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	public void write(List<String> files, List<GroupStats> totals, File directory) throws FileNotFoundException {
+		//every group gets a row, in order, even if no file matched it
+		Map<String, GroupStats> groups = new LinkedHashMap<String, GroupStats>();
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		for (String name: names) {
+			groups.put(name, new GroupStats());
+			counts.put(name, 0);
+		}
+		for (int i=0; i<files.size(); i++) {
+			String group = groupOf(files.get(i));
+			if (!groups.containsKey(group)) {
+				groups.put(group, new GroupStats());
+				counts.put(group, 0);
+			}
+			groups.get(group).addAll(totals.get(i));
+			counts.put(group, counts.get(group) + 1);
+		}
+
+		GroupStats reference = groups.get(names.get(0));
+		PrintWriter pw = new PrintWriter(new File(directory, FILE_NAME));
+		StringBuilder sb = new StringBuilder();
+		sb.append("Group,Files,Total Cells,% NETosis,Avg. Normalized Area,ANA SD,ANA SEM,"
+				+ "Avg. Area,AA SD,AA SEM,Welch t (vs " + names.get(0).replace(',', ';') + "),");
+		sb.append('\n');
+		for (Map.Entry<String, GroupStats> entry: groups.entrySet()) {
+			GroupStats g = entry.getValue();
+			int size = g.getCount();
+			double avgNormalized = GroupStats.sum(g.normalized)/size;
+			double normalizedSD = Math.sqrt(GroupStats.sumSquares(g.normalized, avgNormalized)/(size-1));
+			double avgArea = GroupStats.sum(g.areas)/size;
+			double areaSD = Math.sqrt(GroupStats.sumSquares(g.areas, avgArea)/(size-1));
+			sb.append(entry.getKey().replace(',', ';') + ',' + counts.get(entry.getKey()) + ',' + size + ',');
+			sb.append(((double) g.NETs/size)*100 + "," + avgNormalized + ',');
+			sb.append(normalizedSD + "," + normalizedSD/Math.sqrt(size) + ',');
+			sb.append(avgArea + "," + areaSD + ',' + areaSD/Math.sqrt(size) + ',');
+			sb.append(g == reference ? "" : String.valueOf(welch(g, reference)));
+			sb.append(',');
+			sb.append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+
+
+
+
+
+	/**
+	 * Welch's t of the difference in average area, from the SEM of
+	 * each group as written to Groups.csv.
+	 *
+	 * @param g - totals of a group
+	 * @param reference - totals of the group it is compared to
+	 * @return (mean of g - mean of reference) / sqrt(SEM of g^2 + SEM of reference^2)
+	 */
+	static double welch(GroupStats g, GroupStats reference) {
+		int size = g.getCount();
+		int referenceSize = reference.getCount();
+		double avg = GroupStats.sum(g.areas)/size;
+		double referenceAvg = GroupStats.sum(reference.areas)/referenceSize;
+		double SEM = Math.sqrt(GroupStats.sumSquares(g.areas, avg)/(size-1))/Math.sqrt(size);
+		double referenceSEM = Math.sqrt(GroupStats.sumSquares(reference.areas, referenceAvg)/(referenceSize-1))
+				/Math.sqrt(referenceSize);
+		return (avg - referenceAvg)/Math.sqrt(SEM*SEM + referenceSEM*referenceSEM);
+	}
+}
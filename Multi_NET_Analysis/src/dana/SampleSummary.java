@@ -0,0 +1,303 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The averages of one sample by treatment, as written to its
+ * Summary.csv. Also writes the table combining several samples
+ * for a batch run.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class SampleSummary {
+
+	static final String FILE_NAME = "Summary.csv";
+
+	String name;		//sample name, relative to the batch input directory
+	String treatment;	//optional parameter the sample was split on
+	String error;		//why the sample could not be analyzed, null if it was
+	double treatmentNETosis, nonTreatmentNETosis, combinedNETosis;
+	double avgTreatmentNormalized, avgNonTreatmentNormalized, avgCombinedNormalized;
+	double treatmentNormalizedSD, nonTreatmentNormalizedSD, combinedNormalizedSD;
+	double treatmentNormalizedSEM, nonTreatmentNormalizedSEM, combinedNormalizedSEM;
+	int treatmentsSize, nonTreatmentSize, combinedSize;
+	double avgTreatment, avgNonTreatment, avgCombined;
+	double treatmentSD, nonTreatmentSD, combinedSD;
+	double treatmentSEM, nonTreatmentSEM, combinedSEM;
+	double ttest;
+	String optMinRID;	//whether the lower cutoff should be optimized
+	String file1, file2, file3;	//files with the most fragments
+
+
+
+
+	/**
+	 * @param oParam - optional parameter the sample was split on
+	 */
+	public SampleSummary(String oParam) {
+		treatment = oParam;
+		name = "";
+	}
+
+
+
+
+	/**
+	 * Computes the averages of a sample from the totals of its treated
+	 * and other images.
+	 *
+	 * @param oParam - optional parameter the sample was split on
+	 * @param treated - totals of the images named with the optional parameter
+	 * @param other - totals of the other images
+	 * @return the summary, without the files to check for fragments
+	 */
+	public static SampleSummary fromGroups(String oParam, GroupStats treated, GroupStats other) {
+		SampleSummary s = new SampleSummary(oParam);
+
+		//Number of cells
+		s.treatmentsSize = treated.getCount();
+		s.nonTreatmentSize = other.getCount();
+		s.combinedSize = s.treatmentsSize + other.getNormalizedCount();
+
+		//normalized average
+		double treatmentNormalized = GroupStats.sum(treated.normalized);
+		double nonTreatmentNormalized = GroupStats.sum(other.normalized);
+		s.avgCombinedNormalized = (treatmentNormalized + nonTreatmentNormalized)/s.combinedSize;
+		s.avgTreatmentNormalized = treatmentNormalized/s.treatmentsSize;
+		s.avgNonTreatmentNormalized = nonTreatmentNormalized/s.nonTreatmentSize;
+
+		//actual average
+		double treatmentAreas = GroupStats.sum(treated.areas);
+		double nonTreatmentAreas = GroupStats.sum(other.areas);
+		s.avgCombined = (treatmentAreas + nonTreatmentAreas)/(s.treatmentsSize + s.nonTreatmentSize);
+		s.avgTreatment = treatmentAreas/s.treatmentsSize;
+		s.avgNonTreatment = nonTreatmentAreas/s.nonTreatmentSize;
+
+		//Percent NETosis
+		s.treatmentNETosis = ((double) treated.NETs/s.treatmentsSize)*100;
+		s.nonTreatmentNETosis = ((double) other.NETs/s.nonTreatmentSize)*100;
+		s.combinedNETosis = ((double) (treated.NETs + other.NETs)/s.combinedSize)*100;
+
+		//SD and SEM for normalized areas
+		s.treatmentNormalizedSD = Math.sqrt(GroupStats.sumSquares(treated.normalized, s.avgTreatmentNormalized)
+				/(s.treatmentsSize-1));
+		s.nonTreatmentNormalizedSD = Math.sqrt(GroupStats.sumSquares(other.normalized, s.avgNonTreatmentNormalized)
+				/(s.nonTreatmentSize-1));
+		s.combinedNormalizedSD = Math.sqrt((GroupStats.sumSquares(treated.normalized, s.avgCombinedNormalized)
+				+ GroupStats.sumSquares(other.normalized, s.avgCombinedNormalized))/(s.combinedSize-1));
+		s.treatmentNormalizedSEM = s.treatmentNormalizedSD/Math.sqrt(s.treatmentsSize);
+		s.nonTreatmentNormalizedSEM = s.nonTreatmentNormalizedSD/Math.sqrt(s.nonTreatmentSize);
+		s.combinedNormalizedSEM = s.combinedNormalizedSD/Math.sqrt(s.combinedSize);
+
+		//SD and SEM for actual areas
+		s.treatmentSD = Math.sqrt(GroupStats.sumSquares(treated.areas, s.avgTreatment)/(s.treatmentsSize-1));
+		s.nonTreatmentSD = Math.sqrt(GroupStats.sumSquares(other.areas, s.avgNonTreatment)/(s.nonTreatmentSize-1));
+		s.combinedSD = Math.sqrt((GroupStats.sumSquares(treated.areas, s.avgCombined)
+				+ GroupStats.sumSquares(other.areas, s.avgCombined))/(s.combinedSize-1));
+		s.treatmentSEM = s.treatmentSD/Math.sqrt(s.treatmentsSize);
+		s.nonTreatmentSEM = s.nonTreatmentSD/Math.sqrt(s.nonTreatmentSize);
+		s.combinedSEM = s.combinedSD/Math.sqrt(s.combinedSize);
+
+		//ttest
+		s.ttest = tscore(treated, other);
+		return s;
+	}
+
+
+
+
+	/**
+	 * Compares the areas of two groups.
+	 *
+	 * @param treated - totals of one group
+	 * @param other - totals of the group it is compared to
+	 * @return the t-score of the difference in average area
+	 */
+	static double tscore(GroupStats treated, GroupStats other) {
+		int treatmentsSize = treated.getCount();
+		int nonTreatmentSize = other.getCount();
+		double avgTreatment = GroupStats.sum(treated.areas)/treatmentsSize;
+		double avgNonTreatment = GroupStats.sum(other.areas)/nonTreatmentSize;
+		double treatmentSEM = Math.sqrt(GroupStats.sumSquares(treated.areas, avgTreatment)/(treatmentsSize-1))
+				/Math.sqrt(treatmentsSize);
+		double nonTreatmentSEM = Math.sqrt(GroupStats.sumSquares(other.areas, avgNonTreatment)/(nonTreatmentSize-1))
+				/Math.sqrt(nonTreatmentSize);
+		return (avgTreatment - avgNonTreatment)/Math.sqrt(
+				((treatmentSEM*treatmentSEM)/treatmentsSize)
+				+ ((nonTreatmentSEM*nonTreatmentSEM)/nonTreatmentSize));
+	}
+
+
+
+
+	/**
+	 * Lists the 3 files with the most fragments if the sample has enough
+	 * fragments that the lower cutoff should be optimized.
+	 *
+	 * @param names - name of each file
+	 * @param fragments - number of fragments in each file, in the same order
+	 * @param totalFragments - the number of fragments in the sample
+	 */
+	public void setFragments(List<String> names, List<Integer> fragments, int totalFragments) {
+		file1 = file2 = file3 = "";
+		optMinRID = "no";
+		if (totalFragments < 20) {
+			return;
+		}
+		optMinRID = "YES";
+
+		//Find 3 files w/ most fragments
+		ArrayList<Integer> frags = new ArrayList<>(fragments);
+		Collections.sort(frags);
+		int length = frags.size()-1;
+
+		//file with most fragments
+		for (int i=0; i<names.size(); i++){
+			if (frags.get(length).intValue() == fragments.get(i)){
+				file1 = names.get(i);
+				frags.remove(length);
+				break;
+			}
+		}
+		//samples of fewer than 3 files have fewer to check
+		if (length < 1) {
+			return;
+		}
+
+		//file with 2nd most fragments
+		for (int i=0; i<names.size(); i++){
+			if (frags.get(length-1).intValue() == fragments.get(i)){
+				file2 = names.get(i);
+				if (!file2.equals(file1)){
+					frags.remove(length-1);
+					break;
+				}
+			}
+		}
+		if (length < 2) {
+			return;
+		}
+
+		//file w/ third most fragments
+		for (int i=0; i<names.size(); i++){
+			if (frags.get(length-2).intValue() == fragments.get(i)){
+				file3 = names.get(i);
+				if (!file3.equals(file1) && !file3.equals(file2)){
+					frags.remove(length-2);
+					break;
+				}
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Writes Summary.csv
+	 *
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	public void write(File directory) throws FileNotFoundException {
+		PrintWriter pw = new PrintWriter(new File(directory, FILE_NAME));
+		StringBuilder sb = new StringBuilder();
+		//relative areas
+		sb.append(" " + ',' + "Optional Parameter (" + treatment + ")" + ',' + " " + ',' + "Combined" + ',');
+		sb.append('\n');
+		sb.append("% NETosis" + ',' + treatmentNETosis + ',' + nonTreatmentNETosis + ',' + combinedNETosis + ',');
+		sb.append('\n');
+		sb.append("Avg. Normalized Area" + ',' + avgTreatmentNormalized + ',' + avgNonTreatmentNormalized + ',' + avgCombinedNormalized + ',');
+		sb.append('\n');
+		sb.append("ANA SD" + ',' + treatmentNormalizedSD + ',' + nonTreatmentNormalizedSD + ',' + combinedNormalizedSD + ',');
+		sb.append('\n');
+		sb.append("ANA SEM" + ',' + treatmentNormalizedSEM + ',' + nonTreatmentNormalizedSEM + ',' + combinedNormalizedSEM + ',');
+		sb.append('\n');
+		sb.append("Total Cells" + ',' + treatmentsSize + ',' + nonTreatmentSize + ',' + combinedSize + ',');
+
+		//actual areas
+		sb.append('\n');
+		sb.append('\n');
+		sb.append("Avg. Area" + ',' + avgTreatment + ',' + avgNonTreatment + ',' + avgCombined + ',');
+		sb.append('\n');
+		sb.append("AA SD" + ',' + treatmentSD + ',' + nonTreatmentSD + ',' + combinedSD + ',');
+		sb.append('\n');
+		sb.append("AA SEM" + ',' + treatmentSEM + ',' + nonTreatmentSEM + ',' + combinedSEM + ',');
+
+		//ttest
+		sb.append('\n');
+		sb.append('\n');
+		sb.append("tscore:" + ',' + ttest + ',');
+
+		//Lower Parameter optimization
+		sb.append('\n');
+		sb.append('\n');
+		sb.append("Consider Optimizing Lower Cutoff Parameter:" + ',' + optMinRID + ',');
+		sb.append('\n');
+		sb.append("Files to check:" + ",");
+		sb.append(file1 + ",");
+		sb.append('\n');
+		sb.append("" + ",");
+		sb.append(file2 + ",");
+		sb.append('\n');
+		sb.append("" + ",");
+		sb.append(file3 + ",");
+
+		pw.write(sb.toString());
+		pw.close();
+	}
+
+
+
+
+	/**
+	 * Writes one row per sample to Batch_Summary.csv. Samples that
+	 * could not be analyzed are listed with the reason.
+	 *
+	 * @param samples - summaries of every sample in the batch
+	 * @param directory - folder to write to
+	 * @throws FileNotFoundException
+	 */
+	public static void writeTable(List<SampleSummary> samples, File directory) throws FileNotFoundException {
+		PrintWriter pw = new PrintWriter(new File(directory, "Batch_Summary.csv"));
+		StringBuilder sb = new StringBuilder();
+		String t = samples.isEmpty() ? "" : samples.get(0).treatment;
+		sb.append("Sample,"
+				+ "% NETosis (" + t + "),% NETosis (other),% NETosis (combined),"
+				+ "Avg. Normalized Area (" + t + "),Avg. Normalized Area (other),Avg. Normalized Area (combined),"
+				+ "ANA SD (combined),ANA SEM (combined),"
+				+ "Total Cells (" + t + "),Total Cells (other),Total Cells (combined),"
+				+ "Avg. Area (" + t + "),Avg. Area (other),Avg. Area (combined),"
+				+ "AA SD (combined),AA SEM (combined),"
+				+ "tscore,Consider Optimizing Lower Cutoff Parameter,Error,");
+		sb.append('\n');
+		for (SampleSummary s: samples) {
+			sb.append(s.name.replace(',', ';') + ',');
+			if (s.error != null) {
+				for (int i=0; i<18; i++) {
+					sb.append(',');
+				}
+				sb.append(s.error.replace(',', ';') + ',');
+			}
+			else {
+				sb.append(s.treatmentNETosis + "," + s.nonTreatmentNETosis + "," + s.combinedNETosis + ",");
+				sb.append(s.avgTreatmentNormalized + "," + s.avgNonTreatmentNormalized + "," + s.avgCombinedNormalized + ",");
+				sb.append(s.combinedNormalizedSD + "," + s.combinedNormalizedSEM + ",");
+				sb.append(s.treatmentsSize + "," + s.nonTreatmentSize + "," + s.combinedSize + ",");
+				sb.append(s.avgTreatment + "," + s.avgNonTreatment + "," + s.avgCombined + ",");
+				sb.append(s.combinedSD + "," + s.combinedSEM + ",");
+				sb.append(s.ttest + "," + s.optMinRID + ",,");
+			}
+			sb.append('\n');
+		}
+		pw.write(sb.toString());
+		pw.close();
+	}
+}
@@ -0,0 +1,126 @@
+package dana;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+
+/**
+ * The user parameters saved by "Save Current Settings". Stored as a
+ * text file with one value per line, in the order the fields appear
+ * in the Window:
+ *
+ *  1 input directory, 2 output directory, 3 upper elimination cutoff,
+ *  4 lower cutoff value, 5 normalize to 5 smallest ROIs (true/false),
+ *  6 normalize to set area (true/false), 7 area (um^2),
+ *  8-11 DNA decondensation cutoffs 1-4, 12 NET cutoff,
+ *  13 optional parameter
+ *
+ * Values are kept as entered; they are only parsed when a run starts.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class Settings {
+
+	String inputDirectory, outputDirectory;	//directories read from and saved to
+	String upperCutoff;			//upper elimination cutoff parameter
+	String lowerCutoff;			//lower cutoff value (minimum RID)
+	boolean useRelative;		//normalize to the 5 smallest non-outlier ROIs
+	boolean useAbsolute;		//normalize to a set area
+	String area;				//set area to normalize to (um^2)
+	String CDcutoff1, CDcutoff2, CDcutoff3, CDcutoff4;	//DNA decondensation cutoffs
+	String NETcutoff;			//cutoff for NETs
+	String treatment;			//optional parameter
+
+
+
+
+	/**
+	 * Creates settings holding the Window defaults.
+	 */
+	public Settings() {
+		inputDirectory = "";
+		outputDirectory = "";
+		upperCutoff = "1.5";
+		lowerCutoff = "20000";
+		useRelative = false;
+		useAbsolute = false;
+		area = "90";
+		CDcutoff1 = "3.0";
+		CDcutoff2 = "4.0";
+		CDcutoff3 = "5.0";
+		CDcutoff4 = "6.0";
+		NETcutoff = "4.70";
+		treatment = "";
+	}
+
+
+
+
+	/**
+	 * Reads a settings file. Lines missing from the end of the
+	 * file are left empty.
+	 *
+	 * @param file - the settings file
+	 * @return the settings
+	 * @throws IOException
+	 */
+	public static Settings load(File file) throws IOException {
+		String[] lines = new String[13];
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int j=0; j<13; j++){
+				lines[j] = in.readLine();
+				if (lines[j] == null){
+					lines[j] = "";
+				}
+			}
+		}
+
+		Settings s = new Settings();
+		s.inputDirectory = lines[0];
+		s.outputDirectory = lines[1];
+		s.upperCutoff = lines[2];
+		s.lowerCutoff = lines[3];
+		s.useRelative = lines[4].equals("true");
+		s.useAbsolute = lines[5].equals("true");
+		s.area = lines[6];
+		s.CDcutoff1 = lines[7];
+		s.CDcutoff2 = lines[8];
+		s.CDcutoff3 = lines[9];
+		s.CDcutoff4 = lines[10];
+		s.NETcutoff = lines[11];
+		s.treatment = lines[12];
+		return s;
+	}
+
+
+
+
+	/**
+	 * Writes the settings file.
+	 *
+	 * @param file - file to write to
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		writer.println(inputDirectory);		//1
+		writer.println(outputDirectory);	//2
+		writer.println(upperCutoff);		//3
+		writer.println(lowerCutoff);		//4
+		writer.println(useRelative);		//5
+		writer.println(useAbsolute);		//6
+		writer.println(area);				//7
+		writer.println(CDcutoff1);			//8
+		writer.println(CDcutoff2);			//9
+		writer.println(CDcutoff3);			//10
+		writer.println(CDcutoff4);			//11
+		writer.println(NETcutoff);			//12
+		writer.println(treatment);			//13
+		writer.close();
+	}
+}
@@ -0,0 +1,203 @@
+package dana;
+
+import java.util.Arrays;
+
+
+/**
+ * Keeps the k smallest of the values added to it, using a bounded
+ * max-heap of primitives so the values themselves never need sorting.
+ * Each file keeps its own and they are merged to find the k smallest
+ * of a whole sample. A value may carry a tag, such as the RID of the
+ * ROI whose area it is, which is kept along with it.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class SmallestValues {
+
+	private final double[] heap;	//max-heap, largest kept value first
+	private final double[] tags;	//tag of each kept value, null if not tagged
+	private int size;
+
+
+
+
+	/**
+	 * @param k - number of smallest values to keep
+	 */
+	public SmallestValues(int k) {
+		this(k, false);
+	}
+
+
+
+
+	/**
+	 * @param k - number of smallest values to keep
+	 * @param tagged - whether a tag is kept with each value
+	 */
+	public SmallestValues(int k, boolean tagged) {
+		if (k < 1) {
+			throw new IllegalArgumentException("At least one value must be kept: " + k);
+		}
+		heap = new double[k];
+		tags = tagged ? new double[k] : null;
+		size = 0;
+	}
+
+
+
+
+	/**
+	 * Adds a value, keeping it only if it is among the k smallest so far.
+	 *
+	 * @param value - the value, NaN is ignored
+	 */
+	public void add(double value) {
+		add(value, Double.NaN);
+	}
+
+
+
+
+	/**
+	 * Adds a value with a tag, keeping both only if the value is among
+	 * the k smallest so far. The tag is dropped if this instance does
+	 * not keep tags.
+	 *
+	 * @param value - the value, NaN is ignored
+	 * @param tag - the tag
+	 */
+	public void add(double value, double tag) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		//fills the heap first, sifting the new value up
+		if (size < heap.length) {
+			int pos = size++;
+			while (pos > 0) {
+				int parent = (pos-1)/2;
+				if (heap[parent] >= value) {
+					break;
+				}
+				move(parent, pos);
+				pos = parent;
+			}
+			put(pos, value, tag);
+		}
+		//then replaces the largest kept value if smaller
+		else if (value < heap[0]) {
+			int pos = 0;
+			while (true) {
+				int child = 2*pos + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child+1 < size && heap[child+1] > heap[child]) {
+					child++;
+				}
+				if (heap[child] <= value) {
+					break;
+				}
+				move(child, pos);
+				pos = child;
+			}
+			put(pos, value, tag);
+		}
+	}
+
+
+
+
+	/**
+	 * Moves a kept value, and its tag, to another position in the heap.
+	 */
+	private void move(int from, int to) {
+		heap[to] = heap[from];
+		if (tags != null) {
+			tags[to] = tags[from];
+		}
+	}
+
+
+
+
+	/**
+	 * Stores a value and its tag at a position in the heap.
+	 */
+	private void put(int pos, double value, double tag) {
+		heap[pos] = value;
+		if (tags != null) {
+			tags[pos] = tag;
+		}
+	}
+
+
+
+
+	/**
+	 * Adds the values kept by another instance.
+	 *
+	 * @param other - values to merge in
+	 */
+	public void addAll(SmallestValues other) {
+		for (int i=0; i<other.size; i++) {
+			add(other.heap[i], other.tags == null ? Double.NaN : other.tags[i]);
+		}
+	}
+
+
+
+
+	/**
+	 * @return number of values kept, at most k
+	 */
+	public int size() {
+		return size;
+	}
+
+
+
+
+	/**
+	 * @param i - index of a kept value, from 0 to size()-1, in no particular order
+	 * @return the value
+	 */
+	public double value(int i) {
+		return heap[i];
+	}
+
+
+
+
+	/**
+	 * @param i - index of a kept value, as given to value(i)
+	 * @return the tag kept with it, NaN if tags are not kept
+	 */
+	public double tag(int i) {
+		return tags == null ? Double.NaN : tags[i];
+	}
+
+
+
+
+	/**
+	 * Averages the k smallest values, summed from smallest to largest.
+	 *
+	 * @return the average
+	 * @throws IndexOutOfBoundsException if fewer than k values were added
+	 */
+	public double average() {
+		if (size < heap.length) {
+			throw new IndexOutOfBoundsException("Only " + size + " non-outlier ROIs, "
+					+ heap.length + " are needed to normalize");
+		}
+		double[] sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted);
+		double average = 0.0;
+		for (double v: sorted) {
+			average = average + v;
+		}
+		return average/size;
+	}
+}
@@ -0,0 +1,385 @@
+package dana;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Analyzes a sample without holding all of its files at once, for
+ * samples with more ROIs than fit in memory. Gives the same per-image
+ * output as Multi_NET_Analysis, reading each file twice instead:
+ *
+ * Pass 1 reads each file for the mean and SD of its RID, a sketch of
+ * its RID if the exclusion strategy needs one, and its smallest areas,
+ * each kept with its RID. Once the pooled RID cutoffs
+ * are known, the kept areas that are not outliers give the smallest
+ * non-outlier areas of the file. A file whose kept areas are nearly
+ * all outliers is read once more to find them. If the exclusion
+ * strategy needs the RIDs less their median, every file is read once
+ * more between the passes to sketch them.
+ *
+ * Pass 2 reads each file again, classifies its ROIs, writes its .csv
+ * output and adds it to the totals of its group. The file is then
+ * dropped, so only as many files as there are workers are held at a
+ * time, and Summary.csv is computed from the totals.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class StreamingAnalysis {
+
+	static final int SLACK = 16;	//smallest areas kept per file beyond those averaged
+
+	final Multi_NET_Analysis engine;	//reads the files and holds the user parameters
+	final AnalysisConfig config;
+
+
+
+
+	/**
+	 * @param e - analysis whose parameters and cache are used
+	 */
+	public StreamingAnalysis(Multi_NET_Analysis e) {
+		engine = e;
+		config = e.config;
+	}
+
+
+
+
+	/**
+	 * What pass 1 keeps of a file.
+	 */
+	static class Scan {
+		File file;
+		String name;					//name of the file in the output
+		RunningStats rid = new RunningStats();	//mean and variance of the RID
+		QuantileSketch sketch;			//quantiles of the RID, null unless the exclusion strategy uses them
+		SmallestValues candidates;		//smallest areas of ROIs above the lower cutoff, tagged with their RID
+		long eligible;					//number of ROIs above the lower cutoff
+
+		/**
+		 * Keeps the area of a ROI if it may be among the smallest.
+		 */
+		void add(double area, double RID, double lowerCutoff) {
+			if (!(RID <= lowerCutoff) && !Double.isNaN(area)) {
+				eligible++;
+				candidates.add(area, RID);
+			}
+		}
+
+		/**
+		 * @param k - number of areas to average
+		 * @param upperCutoff - the upper cutoff
+		 * @return the k smallest non-outlier areas of the file, null if
+		 * 			the kept areas may not include them
+		 */
+		SmallestValues smallest(int k, double upperCutoff) {
+			SmallestValues smallest = new SmallestValues(k);
+			int nonOutliers = 0;
+			for (int i=0; i<candidates.size(); i++) {
+				if (!(candidates.tag(i) >= upperCutoff)) {
+					smallest.add(candidates.value(i));
+					nonOutliers++;
+				}
+			}
+			//any area not kept is at least as large as every kept one
+			if (nonOutliers >= k || eligible <= candidates.size()) {
+				return smallest;
+			}
+			return null;
+		}
+	}
+
+
+
+
+	/**
+	 * What pass 2 keeps of a file.
+	 */
+	static class Result {
+		String name;
+		boolean isTreatment;
+		int fragments;
+		GroupStats totals;	//totals of the ROIs that are not outliers
+	}
+
+
+
+
+	/**
+	 * Analyzes every .csv file in a folder, reporting progress to a
+	 * listener, which may also cancel the run.
+	 *
+	 * @param input - input file path
+	 * @param output - output filepath, which must exist
+	 * @param pool - threads to process the files on
+	 * @param listener - receives progress after each file is read or written
+	 * @param report - records the time of each stage, written to Run_Report.csv
+	 * @return the values written to Summary.csv
+	 * @throws IOException
+	 * @throws CancellationException if the listener cancelled the run
+	 * @throws IllegalArgumentException if Results.dana or per-image cutoffs were asked for
+	 */
+	public SampleSummary analyze(String input, String output, ExecutorService pool,
+			AnalysisListener listener, RunReport report) throws IOException {
+		if (config.isBinaryOutput()) {
+			throw new IllegalArgumentException("Results.dana cannot be written in streaming mode.");
+		}
+		if (config.isPerImageCutoffs()) {
+			throw new IllegalArgumentException("Per-image cutoffs cannot be compared in streaming mode.");
+		}
+		InputFiles finder = engine.inputFiles(input, output);
+		List<Path> inputs = finder.list();
+		int keep = config.getSmallest() + SLACK;
+		double lowerCutoff = config.getLowerCutoff();
+
+		//pass 1: RID stats and candidate smallest areas of each file
+		List<Callable<Scan>> scans = new ArrayList<Callable<Scan>>();
+		AtomicInteger filesRead = new AtomicInteger();
+		AtomicLong roisRead = new AtomicLong();
+		for (Path next: inputs) {
+			File cFile = next.toFile();
+			String name = finder.name(next);
+			scans.add(() -> {
+				Multi_NET_Analysis.checkCancelled(listener);
+				long start = report.start();
+				Scan scan = scan(cFile, name, keep, lowerCutoff);
+				report.stop("Scanning", start, scan.rid.getCount(), report.length(cFile), 0);
+				listener.progress("Reading", filesRead.incrementAndGet(), inputs.size(),
+						roisRead.addAndGet(scan.rid.getCount()));
+				return scan;
+			});
+		}
+		List<Scan> allScans = Multi_NET_Analysis.runAll(pool, scans);
+
+		RunningStats allRID = new RunningStats();
+		QuantileSketch allSketch = config.getExclusion().usesSketch() ? new QuantileSketch() : null;
+		for (Scan scan: allScans) {
+			allRID.addAll(scan.rid);
+			if (allSketch != null) {
+				allSketch.addAll(scan.sketch);
+			}
+		}
+		QuantileSketch allDeviations = config.getExclusion().usesDeviations()
+				? deviations(allScans, pool, allSketch.getMedian(), listener, report) : null;
+		double upperCutoff = engine.upperCutoff(allRID, allSketch, allDeviations);
+
+		Multi_NET_Analysis.checkCancelled(listener);
+		long start = report.start();
+		double average = config.isRelative() ? normalize(allScans, pool, lowerCutoff, upperCutoff) : Double.NaN;
+		report.stop("Normalizing", start);
+
+		File outputFolder = new File(output);
+		File staging = Multi_NET_Analysis.createStaging(outputFolder);
+		String stagingDirectory = staging.getPath() + File.separator;
+		boolean finished = false;
+		try {
+			//pass 2: classify, write and total each file, one file per worker at a time
+			List<Callable<Result>> writes = new ArrayList<Callable<Result>>();
+			AtomicInteger filesWritten = new AtomicInteger();
+			AtomicLong roisWritten = new AtomicLong();
+			for (Path next: inputs) {
+				File cFile = next.toFile();
+				String name = finder.name(next);
+				writes.add(() -> {
+					Multi_NET_Analysis.checkCancelled(listener);
+					long started = report.start();
+					Matrix m = engine.read(cFile, name);
+					report.stop("Reading", started, m.getNumCells(), report.length(cFile), 0);
+					Result result = new Result();
+					result.name = m.getName();
+					result.isTreatment = m.isTreatment();
+					started = report.start();
+					result.fragments = m.findOutliers(lowerCutoff, upperCutoff);
+					report.stop("Screening", started, m.getNumCells(), 0, 0);
+					started = report.start();
+					m.update(average, config.getCDcutoff1(), config.getCDcutoff2(), config.getCDcutoff3(), config.getCDcutoff4(),
+							config.getNETcutoff(), config.isRelative(), config.getAbsArea(), config.isHistograms());
+					report.stop("Updating", started, m.getNumCells(), 0, 0);
+					started = report.start();
+					try {
+						m.createCSV(stagingDirectory);
+					} catch (FileNotFoundException e2) {
+						throw new FileNotFoundException("oE1");
+					}
+					report.stop("Writing", started, m.getNumCells(), 0,
+							report.length(new File(staging, m.getName())));
+					result.totals = m.getTotals();
+					listener.progress("Writing", filesWritten.incrementAndGet(), inputs.size(),
+							roisWritten.addAndGet(m.getNumCells()));
+					return result;
+				});
+			}
+
+			//totals are combined in the order the files were found
+			List<Result> results = Multi_NET_Analysis.runAll(pool, writes);
+			start = report.start();
+			GroupStats treated = new GroupStats();
+			GroupStats other = new GroupStats();
+			List<String> names = new ArrayList<String>();
+			List<Integer> fragments = new ArrayList<Integer>();
+			List<GroupStats> totals = new ArrayList<GroupStats>();
+			int totFrags = 0;
+			for (Result result: results) {
+				(result.isTreatment ? treated : other).addAll(result.totals);
+				names.add(result.name);
+				fragments.add(result.fragments);
+				totals.add(result.totals);
+				totFrags += result.fragments;
+			}
+			SampleSummary summary = SampleSummary.fromGroups(config.getTreatment(), treated, other);
+			summary.setFragments(names, fragments, totFrags);
+			summary.write(staging);
+			if (config.getGroups() != null) {
+				config.getGroups().write(names, totals, staging);
+			}
+			if (config.isHistograms()) {
+				Distributions.write(names, totals, config.getTreatment(), treated, other, config.getGroups(), staging);
+			}
+			report.stop("Summary", start);
+			report.write(staging);
+
+			//last chance to cancel before the output directory is touched
+			Multi_NET_Analysis.checkCancelled(listener);
+			Multi_NET_Analysis.moveAll(staging, outputFolder);
+			finished = true;
+			return summary;
+		} finally {
+			if (!finished) {
+				Multi_NET_Analysis.deleteAll(staging);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Reads a file for pass 1, keeping the smallest areas of the ROIs
+	 * that are not below the lower cutoff. Only the RID stats, sketch and
+	 * the kept areas are held, unless the file is loaded from the cache.
+	 *
+	 * @param cFile - the .csv file
+	 * @param name - name of the file in the output
+	 * @param keep - number of smallest areas to keep
+	 * @param lowerCutoff - the lower cutoff
+	 * @return what was kept
+	 * @throws IOException
+	 */
+	Scan scan(File cFile, String name, int keep, double lowerCutoff) throws IOException {
+		Scan scan = new Scan();
+		scan.file = cFile;
+		scan.name = name;
+		scan.candidates = new SmallestValues(keep, true);
+		if (engine.cache != null) {
+			Matrix m = engine.read(cFile, name);
+			scan.rid = m.getRIDStats();
+			if (config.getExclusion().usesSketch()) {
+				scan.sketch = m.getRIDSketch();
+			}
+			for (int i=0; i<m.getNumCells(); i++) {
+				scan.add(m.columns[1][i], m.columns[7][i], lowerCutoff);
+			}
+			return scan;
+		}
+		if (config.getExclusion().usesSketch()) {
+			scan.sketch = new QuantileSketch();
+		}
+		try (CSVReader reader = new CSVReader(cFile)) {
+			reader.readLabels(Matrix.INPUT_COLUMNS);
+			double[] row = new double[Matrix.INPUT_COLUMNS];
+			while (reader.readRow(row)) {
+				scan.rid.add(row[7]);
+				if (scan.sketch != null) {
+					scan.sketch.add(row[7]);
+				}
+				scan.add(row[1], row[7], lowerCutoff);
+			}
+		} catch (NumberFormatException n2) {
+			throw new NumberFormatException(name + " (" + n2.getMessage() + ")");
+		}
+		return scan;
+	}
+
+
+
+
+	/**
+	 * Reads each file again to sketch the RIDs of its ROIs less a center,
+	 * for exclusion strategies that use the deviations from the median.
+	 *
+	 * @param allScans - what pass 1 kept of each file
+	 * @param pool - threads to read files on
+	 * @param center - value taken from every RID, the median of the pooled sketch
+	 * @param listener - may cancel the run between files
+	 * @param report - records the time of each stage
+	 * @return quantiles of the RID less center of every ROI
+	 * @throws IOException
+	 */
+	QuantileSketch deviations(List<Scan> allScans, ExecutorService pool, double center,
+			AnalysisListener listener, RunReport report) throws IOException {
+		List<Callable<QuantileSketch>> reads = new ArrayList<Callable<QuantileSketch>>();
+		for (Scan scan: allScans) {
+			reads.add(() -> {
+				Multi_NET_Analysis.checkCancelled(listener);
+				long start = report.start();
+				Matrix m = engine.read(scan.file, scan.name);
+				QuantileSketch sketch = m.getRIDDeviations(center);
+				report.stop("Deviations", start, m.getNumCells(), report.length(scan.file), 0);
+				return sketch;
+			});
+		}
+		QuantileSketch allDeviations = new QuantileSketch();
+		for (QuantileSketch sketch: Multi_NET_Analysis.runAll(pool, reads)) {
+			allDeviations.addAll(sketch);
+		}
+		return allDeviations;
+	}
+
+
+
+
+	/**
+	 * Finds average of the k smallest non-outlier cells from the areas
+	 * kept in pass 1, reading again any file whose kept areas may not
+	 * include its k smallest.
+	 *
+	 * @param allScans - what pass 1 kept of each file
+	 * @param pool - threads to read files on
+	 * @param lowerCutoff - the lower cutoff
+	 * @param upperCutoff - the upper cutoff
+	 * @return the average of the k smallest cells
+	 * @throws IOException
+	 */
+	double normalize(List<Scan> allScans, ExecutorService pool, double lowerCutoff,
+			double upperCutoff) throws IOException {
+		int k = config.getSmallest();
+		List<SmallestValues> perFile = new ArrayList<SmallestValues>();
+		List<Callable<SmallestValues>> rescans = new ArrayList<Callable<SmallestValues>>();
+		for (Scan scan: allScans) {
+			SmallestValues smallest = scan.smallest(k, upperCutoff);
+			if (smallest != null) {
+				perFile.add(smallest);
+			}
+			else {
+				rescans.add(() -> {
+					Matrix m = engine.read(scan.file, scan.name);
+					m.findOutliers(lowerCutoff, upperCutoff);
+					return m.smallestAreas(k);
+				});
+			}
+		}
+		perFile.addAll(Multi_NET_Analysis.runAll(pool, rescans));
+		return Multi_NET_Analysis.normalize(perFile.toArray(new SmallestValues[0]), k);
+	}
+}
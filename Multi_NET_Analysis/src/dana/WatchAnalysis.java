@@ -0,0 +1,470 @@
+package dana;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Analyzes a folder while a microscope is still writing .csv files to
+ * it. New and changed files are read once they have not changed for
+ * the delay, so a file is not read while it is being written and files
+ * arriving together are added in one batch.
+ *
+ * After each batch the pooled RID cutoff is found from the RID stats
+ * each file kept while it was read, without reading any file again.
+ * A file is only screened again if a RID in it lies between the old
+ * and the new cutoff, and its .csv output is only rewritten if that
+ * changed the classification of one of its ROIs, or if the area the
+ * sample is normalized to changed. Summary.csv is rewritten with
+ * every batch.
+ *
+ * The .csv output of a file that was not rewritten shows the upper
+ * cutoff it was last classified with. Once the watch is stopped these
+ * files are written again, so the output directory then matches a
+ * single analysis of the folder.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+public class WatchAnalysis {
+
+	static final long DEFAULT_DELAY = 2000;	//ms a file must be unchanged before it is read
+	static final long POLL = 250;			//ms between checks whether the watch was stopped
+
+	final Multi_NET_Analysis engine;	//reads the files and holds the user parameters
+	final AnalysisConfig config;
+	final long delay;					//ms a file must be unchanged before it is read
+
+	//files in the sample by name, held until the watch is stopped
+	private final Map<String, Image> images = new TreeMap<String, Image>();
+	private double upperCutoff = Double.NaN;	//pooled upper RID cutoff of the sample
+	private double average = Double.NaN;		//area the sample is normalized to
+	private SampleSummary summary;				//values last written to Summary.csv, null if it was removed
+
+
+
+
+	/**
+	 * @param c - user parameters
+	 * @param delayMillis - time a file must be unchanged before it is read
+	 */
+	public WatchAnalysis(AnalysisConfig c, long delayMillis) {
+		engine = new Multi_NET_Analysis(c);
+		config = c;
+		delay = Math.max(0, delayMillis);
+	}
+
+
+
+
+	/**
+	 * What is kept of each file in the sample.
+	 */
+	static class Image {
+		final Matrix m;
+		SmallestValues smallest;	//smallest non-outlier areas, null if not normalized to them
+		double below;				//largest RID below the upper cutoff, -Infinity if none
+		double above;				//smallest RID at or above the upper cutoff, Infinity if none
+		double written;				//upper cutoff of the .csv output, NaN if not written
+
+		Image(Matrix matrix) {
+			m = matrix;
+			written = Double.NaN;
+		}
+
+		/**
+		 * Classifies the ROIs of the file by the cutoffs and keeps the
+		 * RIDs either side of the upper cutoff.
+		 */
+		void screen(double lowerCutoff, double upperCutoff, AnalysisConfig config) {
+			m.findOutliers(lowerCutoff, upperCutoff);
+			below = Double.NEGATIVE_INFINITY;
+			above = Double.POSITIVE_INFINITY;
+			double[] RID = m.columns[7];
+			for (int pos=0; pos<m.numCells; pos++) {
+				if (RID[pos] >= upperCutoff) {
+					above = Math.min(above, RID[pos]);
+				}
+				else if (RID[pos] < upperCutoff) {
+					below = Math.max(below, RID[pos]);
+				}
+			}
+			smallest = config.isRelative() ? m.smallestAreas(config.getSmallest()) : null;
+		}
+
+		/**
+		 * @param cutoff - a new upper cutoff
+		 * @return true if no ROI changes between outlier and non-outlier
+		 * 			when the file is screened with the new cutoff
+		 */
+		boolean unchangedBy(double cutoff) {
+			return below < cutoff && cutoff <= above;
+		}
+	}
+
+
+
+
+	/**
+	 * Watches a folder until the listener stops the watch, analyzing
+	 * the files already in it and every input file added or changed.
+	 * A file that cannot be read is reported to the listener and left
+	 * out of the sample until it changes again.
+	 *
+	 * @param input - folder the .csv files are written to
+	 * @param output - folder the results are written to
+	 * @param listener - told of each batch and of files that could not be
+	 * 				read, stops the watch once cancelled
+	 * @return the values last written to Summary.csv, null if none is left
+	 * @throws IOException if the folder could not be watched or the results written
+	 * @throws IllegalArgumentException if the output folder is the input folder, or
+	 * 			the config asks for the folders below it or for per-image cutoffs
+	 */
+	public SampleSummary watch(File input, File output, AnalysisListener listener) throws IOException {
+		//fails before reading anything if there is nowhere to write
+		if (!output.isDirectory()) {
+			throw new FileNotFoundException("oE1");
+		}
+		if (Files.isSameFile(input.toPath(), output.toPath())) {
+			throw new IllegalArgumentException("The output directory must not be the watched input directory.");
+		}
+
+		if (config.isRecursive()) {
+			throw new IllegalArgumentException("Only the input directory itself can be watched, not the folders below it.");
+		}
+		if (config.isPerImageCutoffs()) {
+			throw new IllegalArgumentException("Per-image cutoffs cannot be compared while watching.");
+		}
+
+		InputFiles finder = engine.inputFiles(input.getPath(), output.getPath());
+		ExecutorService pool = Executors.newFixedThreadPool(config.getWorkers());
+		try (WatchService watcher = input.toPath().getFileSystem().newWatchService()) {
+			input.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+			//time each file last changed; files already there are read at once
+			Map<String, Long> pending = new HashMap<String, Long>();
+			long now = System.nanoTime();
+			for (Path f: finder.list()) {
+				pending.put(f.getFileName().toString(), now - TimeUnit.MILLISECONDS.toNanos(delay));
+			}
+
+			while (!listener.isCancelled()) {
+				WatchKey key = watcher.poll(POLL, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					now = System.nanoTime();
+					for (WatchEvent<?> event: key.pollEvents()) {
+						if (event.kind() == OVERFLOW) {
+							//events were lost, so every file is checked again
+							for (Path f: finder.list()) {
+								pending.put(f.getFileName().toString(), now);
+							}
+							for (String name: images.keySet()) {
+								pending.put(name, now);
+							}
+						}
+						else {
+							Path changed = (Path) event.context();
+							if (finder.matches(changed)) {
+								pending.put(changed.getFileName().toString(), now);
+							}
+						}
+					}
+					if (!key.reset()) {
+						throw new IOException(input + " can no longer be watched");
+					}
+				}
+
+				//files unchanged for the delay are analyzed together
+				List<String> ready = new ArrayList<String>();
+				now = System.nanoTime();
+				Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<String, Long> e = it.next();
+					if (now - e.getValue() >= TimeUnit.MILLISECONDS.toNanos(delay)) {
+						ready.add(e.getKey());
+						it.remove();
+					}
+				}
+				if (!ready.isEmpty()) {
+					update(input, output, ready, pool, listener);
+				}
+			}
+
+			finish(output, pool);
+			return summary;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("watch interrupted");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+
+
+
+	/**
+	 * Adds, replaces or removes the files of a batch, classifies the
+	 * ROIs the new cutoffs affect and writes the changed output.
+	 *
+	 * @param input - the watched folder
+	 * @param output - folder the results are written to
+	 * @param names - files created, changed or deleted since the last batch
+	 * @param pool - threads to process the files on
+	 * @param listener - told of the batch, of files that could not be read, of
+	 * 				batches with too few ROIs to normalize to and of the last file deleted
+	 * @throws IOException if the results could not be written
+	 */
+	private void update(File input, File output, List<String> names, ExecutorService pool,
+			AnalysisListener listener) throws IOException {
+		List<String> removed = new ArrayList<String>();
+		List<Callable<Image>> reads = new ArrayList<Callable<Image>>();
+		for (String name: names) {
+			File f = new File(input, name);
+			if (!f.isFile()) {
+				removed.add(name);
+				continue;
+			}
+			reads.add(() -> {
+				try {
+					Matrix m = engine.read(f);
+					if (config.getExclusion().usesSketch()) {
+						m.getRIDSketch();
+					}
+					return new Image(m);
+				} catch (IOException | NumberFormatException e) {
+					listener.skipped(name, e.getMessage() == null ? e.toString() : e.getMessage());
+					return null;
+				}
+			});
+		}
+		for (String name: removed) {
+			if (images.remove(name) != null) {
+				Files.deleteIfExists(new File(output, name).toPath());
+			}
+		}
+		for (Image image: Multi_NET_Analysis.runAll(pool, reads)) {
+			if (image != null) {
+				images.put(image.m.getName(), image);
+			}
+		}
+		if (images.isEmpty()) {
+			if (summary != null) {
+				removeSummaries(output);
+				listener.waiting("No files left to analyze, the summaries were removed; waiting for more files");
+			}
+			return;
+		}
+
+		//pools the RID stats and sketches of every file for the new cutoff
+		List<Matrix> allFiles = new ArrayList<Matrix>(images.size());
+		for (Image image: images.values()) {
+			allFiles.add(image.m);
+		}
+		double cutoff = engine.findCutoffs(allFiles);
+		double lowerCutoff = config.getLowerCutoff();
+
+		//screens the new files and those with a RID between the old and new cutoff
+		Map<Image, byte[]> before = new HashMap<Image, byte[]>();
+		List<Callable<Void>> screens = new ArrayList<Callable<Void>>();
+		for (Image image: images.values()) {
+			if (image.m.classes == null || !image.unchangedBy(cutoff)) {
+				before.put(image, image.m.classes);
+				screens.add(() -> {
+					image.screen(lowerCutoff, cutoff, config);
+					return null;
+				});
+			}
+		}
+		Multi_NET_Analysis.runAll(pool, screens);
+		upperCutoff = cutoff;
+
+		//a new normalizing area changes the relative area of every ROI
+		double normalizeTo = average;
+		if (config.isRelative()) {
+			SmallestValues[] smallest = new SmallestValues[images.size()];
+			int candidates = 0;
+			int i = 0;
+			for (Image image: images.values()) {
+				smallest[i++] = image.smallest;
+				candidates += image.smallest.size();
+			}
+			//the first files of a run may not yet have enough ROIs
+			if (candidates < config.getSmallest()) {
+				//every file is updated and written once there are enough
+				average = Double.NaN;
+				if (summary != null) {
+					//files were deleted, so the summaries count ROIs that are gone
+					removeSummaries(output);
+				}
+				listener.waiting("Only " + candidates + " non-outlier ROIs, " + config.getSmallest()
+						+ " are needed to normalize; waiting for more files");
+				return;
+			}
+			normalizeTo = Multi_NET_Analysis.normalize(smallest, config.getSmallest());
+		}
+		boolean normalizeChanged = Double.compare(normalizeTo, average) != 0;
+		average = normalizeTo;
+
+		//updates the screened files, and every file if the normalizing area changed
+		List<Image> changed = new ArrayList<Image>();
+		List<Callable<Boolean>> updates = new ArrayList<Callable<Boolean>>();
+		for (Image image: images.values()) {
+			if (normalizeChanged || before.containsKey(image)) {
+				changed.add(image);
+				updates.add(() -> {
+					image.m.update(average, config.getCDcutoff1(), config.getCDcutoff2(), config.getCDcutoff3(),
+							config.getCDcutoff4(), config.getNETcutoff(), config.isRelative(), config.getAbsArea(), config.isHistograms());
+					return normalizeChanged || !Arrays.equals(before.get(image), image.m.classes);
+				});
+			}
+		}
+		List<Boolean> rewrite = Multi_NET_Analysis.runAll(pool, updates);
+		List<Image> toWrite = new ArrayList<Image>();
+		for (int i=0; i<changed.size(); i++) {
+			if (rewrite.get(i)) {
+				toWrite.add(changed.get(i));
+			}
+		}
+
+		write(toWrite, allFiles, output, pool);
+		long rois = 0;
+		for (Matrix m: allFiles) {
+			rois += m.getNumCells();
+		}
+		listener.progress("Updated", toWrite.size(), allFiles.size(), rois);
+	}
+
+
+
+
+	/**
+	 * Deletes Summary.csv, and Groups.csv and Histograms.csv if they
+	 * are written, once they no longer describe the files in the sample.
+	 *
+	 * @param output - folder the results are written to
+	 * @throws IOException if a file could not be deleted
+	 */
+	private void removeSummaries(File output) throws IOException {
+		Files.deleteIfExists(new File(output, SampleSummary.FILE_NAME).toPath());
+		if (config.getGroups() != null) {
+			Files.deleteIfExists(new File(output, SampleGroups.FILE_NAME).toPath());
+		}
+		if (config.isHistograms()) {
+			Files.deleteIfExists(new File(output, Distributions.FILE_NAME).toPath());
+		}
+		summary = null;
+	}
+
+
+
+
+	/**
+	 * Writes the .csv output of the files whose cutoff is not the
+	 * current one, so the output matches a single analysis.
+	 *
+	 * @param output - folder the results are written to
+	 * @param pool - threads to process the files on
+	 * @throws IOException if the results could not be written
+	 */
+	private void finish(File output, ExecutorService pool) throws IOException {
+		if (config.isRelative() && Double.isNaN(average)) {
+			//stopped while waiting for enough ROIs to normalize to
+			return;
+		}
+		List<Image> stale = new ArrayList<Image>();
+		List<Callable<Void>> updates = new ArrayList<Callable<Void>>();
+		for (Image image: images.values()) {
+			if (Double.compare(image.written, upperCutoff) != 0) {
+				stale.add(image);
+				updates.add(() -> {
+					//the cutoff moved within the file's gap, so only the cutoff written changes
+					image.screen(config.getLowerCutoff(), upperCutoff, config);
+					image.m.update(average, config.getCDcutoff1(), config.getCDcutoff2(), config.getCDcutoff3(),
+							config.getCDcutoff4(), config.getNETcutoff(), config.isRelative(), config.getAbsArea(), config.isHistograms());
+					return null;
+				});
+			}
+		}
+		if (stale.isEmpty()) {
+			return;
+		}
+		Multi_NET_Analysis.runAll(pool, updates);
+		List<Matrix> allFiles = new ArrayList<Matrix>(images.size());
+		for (Image image: images.values()) {
+			allFiles.add(image.m);
+		}
+		write(stale, allFiles, output, pool);
+	}
+
+
+
+
+	/**
+	 * Writes the .csv output of some files and the summaries of the
+	 * whole sample to a staging folder, then moves them into the
+	 * output directory together.
+	 *
+	 * @param toWrite - files whose .csv output is written
+	 * @param allFiles - every matrix in the sample
+	 * @param output - folder the results are written to
+	 * @param pool - threads to write the files on
+	 * @throws IOException if the results could not be written
+	 */
+	private void write(List<Image> toWrite, List<Matrix> allFiles, File output,
+			ExecutorService pool) throws IOException {
+		File staging = Multi_NET_Analysis.createStaging(output);
+		String stagingDirectory = staging.getPath() + File.separator;
+		boolean finished = false;
+		try {
+			List<Callable<Void>> writes = new ArrayList<Callable<Void>>();
+			for (Image image: toWrite) {
+				writes.add(() -> {
+					try {
+						image.m.createCSV(stagingDirectory);
+					} catch (FileNotFoundException e2) {
+						throw new FileNotFoundException("oE1");
+					}
+					image.written = image.m.upperCutoff;
+					return null;
+				});
+			}
+			Multi_NET_Analysis.runAll(pool, writes);
+
+			int totalFragments = 0;
+			for (Matrix m: allFiles) {
+				totalFragments += m.getFragments();
+			}
+			summary = engine.totalCSV(allFiles, totalFragments, staging);
+			Multi_NET_Analysis.moveAll(staging, output);
+			finished = true;
+		} finally {
+			if (!finished) {
+				Multi_NET_Analysis.deleteAll(staging);
+			}
+		}
+	}
+}
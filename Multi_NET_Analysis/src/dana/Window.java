@@ -1,15 +1,18 @@
+package dana;
+
 import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.imageio.ImageIO;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
@@ -18,8 +21,10 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 
 
 /**
@@ -47,7 +52,7 @@ public class Window extends JFrame {
 	public Window() {
 
 		super("DNA Area and NETosis Analysis (DANA)");	
-		setSize(650,450);
+		setSize(650,500);
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
 
 		//Icon
@@ -249,22 +254,21 @@ public class Window extends JFrame {
 							name.setText(temp.substring(0, fName.lastIndexOf('.')));
 						}
 
-						File newFile = new File(temp);
-						PrintWriter writer = new PrintWriter(newFile, "UTF-8");
-						writer.println(inDirTF.getText());	//1
-						writer.println(outDirTF.getText());	//2
-						writer.println(uCutTF.getText());	//3
-						writer.println(minTF.getText());	//4
-						writer.println(Rbox.isSelected());	//5
-						writer.println(Abox.isSelected());	//6
-						writer.println(areaTF.getText());	//7
-						writer.println(DNACutTF1.getText());//8
-						writer.println(DNACutTF2.getText());//9
-						writer.println(DNACutTF3.getText());//10
-						writer.println(DNACutTF4.getText());//11
-						writer.println(NETcutTF.getText());	//12
-						writer.println(oParamTF.getText());	//13
-						writer.close();
+						Settings current = new Settings();
+						current.inputDirectory = inDirTF.getText();
+						current.outputDirectory = outDirTF.getText();
+						current.upperCutoff = uCutTF.getText();
+						current.lowerCutoff = minTF.getText();
+						current.useRelative = Rbox.isSelected();
+						current.useAbsolute = Abox.isSelected();
+						current.area = areaTF.getText();
+						current.CDcutoff1 = DNACutTF1.getText();
+						current.CDcutoff2 = DNACutTF2.getText();
+						current.CDcutoff3 = DNACutTF3.getText();
+						current.CDcutoff4 = DNACutTF4.getText();
+						current.NETcutoff = NETcutTF.getText();
+						current.treatment = oParamTF.getText();
+						current.save(new File(temp));
 						JOptionPane.showMessageDialog(null, "File has been saved","File Saved",JOptionPane.INFORMATION_MESSAGE);
 						// true for rewrite, false for override
 
@@ -295,58 +299,23 @@ public class Window extends JFrame {
 				if(returnVal == JFileChooser.APPROVE_OPTION){
 					//Name current settings field
 					try {
-						BufferedReader in = new BufferedReader(new FileReader(fc.getSelectedFile()));
+						Settings loaded = Settings.load(fc.getSelectedFile());
 						fileName = fc.getSelectedFile().getName();
 						fileName = fileName.substring(0,fileName.lastIndexOf('.'));
 						name.setText(fileName);
-						String element = null;
-						for (int j=0; j<14; j++){
-							element = in.readLine();
-							if (j == 0){
-								inDirTF.setText(element);
-							}
-							else if (j == 1){
-								outDirTF.setText(element);
-							}
-							else if (j == 2){
-								uCutTF.setText(element);
-							}
-							else if (j == 3){
-								minTF.setText(element);
-							}
-							else if (j == 4){
-								if(element.equals("true")){
-									Rbox.setSelected(true);
-								} else { Rbox.setSelected(false);}
-							}
-							else if (j == 5){
-								if(element.equals("true")){
-									Abox.setSelected(true);
-								} else { Abox.setSelected(false);}
-							}
-							else if (j == 6){
-								areaTF.setText(element);
-							}
-							else if (j == 7){
-								DNACutTF1.setText(element);
-							}
-							else if (j == 8){
-								DNACutTF2.setText(element);
-							}
-							else if (j == 9){
-								DNACutTF3.setText(element);
-							}
-							else if (j == 10){
-								DNACutTF4.setText(element);
-							}
-							else if (j == 11){
-								NETcutTF.setText(element);
-							}
-							else if (j == 12){
-								oParamTF.setText(element);
-							}
-						}
-						in.close();
+						inDirTF.setText(loaded.inputDirectory);
+						outDirTF.setText(loaded.outputDirectory);
+						uCutTF.setText(loaded.upperCutoff);
+						minTF.setText(loaded.lowerCutoff);
+						Rbox.setSelected(loaded.useRelative);
+						Abox.setSelected(loaded.useAbsolute);
+						areaTF.setText(loaded.area);
+						DNACutTF1.setText(loaded.CDcutoff1);
+						DNACutTF2.setText(loaded.CDcutoff2);
+						DNACutTF3.setText(loaded.CDcutoff3);
+						DNACutTF4.setText(loaded.CDcutoff4);
+						NETcutTF.setText(loaded.NETcutoff);
+						oParamTF.setText(loaded.treatment);
 
 					} catch (IOException e1) {
 						e1.printStackTrace();
@@ -361,6 +330,23 @@ public class Window extends JFrame {
 		pC.add(defSet, gbc3);
 
 
+		//PROGRESS of the current run
+		JProgressBar progressBar = new JProgressBar(0, 100);
+		progressBar.setStringPainted(true);
+		JLabel status = new JLabel(" ");
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		JButton cancel = new JButton("Cancel");
+		cancel.setEnabled(false);
+		//stops the current run after the files in progress
+		cancel.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				cancelled.set(true);
+				cancel.setEnabled(false);
+				status.setText("Cancelling...");
+			}
+		});
+
 		//RUN DANA
 		JButton run = new JButton("Run DANA");
 		run.addActionListener(new ActionListener() {
@@ -375,14 +361,8 @@ public class Window extends JFrame {
 				UCut = LCut = area = DNACut1 = DNACut2 = DNACut3 = DNACut4 = NETcut = null;
 
 				//Get directory
-				String indir = inDirTF.getText();
-				if (indir.charAt(indir.length()-1) != '\\') {
-					indir = indir + "\\";
-				}
-				String outdir = outDirTF.getText();
-				if (outdir.charAt(outdir.length()-1) != '\\') {
-					outdir = outdir + "\\";
-				}
+				String indir = CommandLine.withSeparator(inDirTF.getText());
+				String outdir = CommandLine.withSeparator(outDirTF.getText());
 		
 				//Get params
 				//Upper cutoff
@@ -464,22 +444,93 @@ public class Window extends JFrame {
 				}
 				String oParameter = oParamTF.getText();
 				if (tripped == false){
-					try {
-						Multi_NET_Analysis m = new Multi_NET_Analysis(outdir, indir, UCut, LCut, DNACut1, DNACut2,
-								DNACut3, DNACut4, NETcut, oParameter, useRelative, area);
+					//runs DANA in the background so the window stays responsive
+					final String in = indir;
+					final String out = outdir;
+					final Double[] params = {UCut, LCut, DNACut1, DNACut2, DNACut3, DNACut4, NETcut, area};
+					final boolean relative = useRelative;
+					final long start = System.nanoTime();
+
+					SwingWorker<Void, String> worker = new SwingWorker<Void, String>() {
+						@Override
+						protected Void doInBackground() throws Exception {
+							AnalysisConfig config = new AnalysisConfig(params[0], params[1], params[2], params[3],
+									params[4], params[5], params[6], oParameter, relative, params[7]);
+							new Multi_NET_Analysis(config).analyze(in, out, new AnalysisListener() {
+								@Override
+								public void progress(String stage, int filesDone, int totalFiles, long roisDone) {
+									double seconds = (System.nanoTime() - start) / 1e9;
+									//reading is the first half of the bar, writing the second
+									int half = stage.equals("Reading") ? 0 : 50;
+									setProgress(Math.min(100, half + 50*filesDone/Math.max(1, totalFiles)));
+									publish(String.format("%s: %d of %d files, %,d ROIs (%,.0f ROIs/s)",
+											stage, filesDone, totalFiles, roisDone, roisDone/seconds));
+								}
+
+								@Override
+								public boolean isCancelled() {
+									return cancelled.get();
+								}
+							});
+							return null;
+						}
 
-						//error messages for file not found warnings
-					} catch (FileNotFoundException e1) {
-						if (e1.getMessage().equals("oE1")){
-							JOptionPane.showMessageDialog(null, "Output directory: " + outdir + " could not be found.");
+						@Override
+						protected void process(List<String> updates) {
+							status.setText(updates.get(updates.size()-1));
 						}
 
-					}catch (NullPointerException e2){
-						JOptionPane.showMessageDialog(null, "There was a problem encountered with the input directory: "
-								+ indir);
-					}catch(NumberFormatException n1){
-						JOptionPane.showMessageDialog(null, "There was a problem encountered with: " + n1.getMessage());
-					}
+						@Override
+						protected void done() {
+							run.setEnabled(true);
+							cancel.setEnabled(false);
+							try {
+								get();
+								progressBar.setValue(100);
+								status.setText(String.format("Finished in %.1f s", (System.nanoTime() - start) / 1e9));
+
+								//error messages for file not found warnings
+							} catch (InterruptedException e1) {
+								Thread.currentThread().interrupt();
+							} catch (ExecutionException e1) {
+								Throwable cause = e1.getCause();
+								progressBar.setValue(0);
+								status.setText(" ");
+								if (cause instanceof CancellationException){
+									status.setText("Run cancelled, no output was written.");
+								}
+								else if (cause instanceof FileNotFoundException && "oE1".equals(cause.getMessage())){
+									JOptionPane.showMessageDialog(null, "Output directory: " + out + " could not be found.");
+								}
+								else if (cause instanceof IOException){
+									JOptionPane.showMessageDialog(null, "There was a problem reading the input directory: "
+											+ in + " (" + cause.getMessage() + ")");
+								}
+								else if (cause instanceof NullPointerException){
+									JOptionPane.showMessageDialog(null, "There was a problem encountered with the input directory: "
+											+ in);
+								}
+								else if (cause instanceof NumberFormatException){
+									JOptionPane.showMessageDialog(null, "There was a problem encountered with: " + cause.getMessage());
+								}
+								else {
+									JOptionPane.showMessageDialog(null, "DANA stopped unexpectedly: " + cause);
+								}
+							}
+						}
+					};
+					worker.addPropertyChangeListener(evt -> {
+						if ("progress".equals(evt.getPropertyName())) {
+							progressBar.setValue((Integer) evt.getNewValue());
+						}
+					});
+
+					cancelled.set(false);
+					run.setEnabled(false);
+					cancel.setEnabled(true);
+					progressBar.setValue(0);
+					status.setText("Starting...");
+					worker.execute();
 				}
 
 			}
@@ -488,6 +539,18 @@ public class Window extends JFrame {
 		gbc3.gridx = 4;
 		gbc3.gridy = 1;
 		pC.add(run, gbc3);
+		gbc3.gridx = 5;
+		gbc3.gridy = 1;
+		pC.add(cancel, gbc3);
+
+		//progress bar and status of current run
+		gbc3.gridx = 1;
+		gbc3.gridy = 2;
+		gbc3.gridwidth = 5;
+		gbc3.fill = GridBagConstraints.HORIZONTAL;
+		pC.add(progressBar, gbc3);
+		gbc3.gridy = 3;
+		pC.add(status, gbc3);
 		add(pC, BorderLayout.SOUTH);
 	}
 	private static final long serialVersionUID = 1L;
@@ -0,0 +1,295 @@
+package dana;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that CSVReader gives every value exactly as Double.parseDouble
+ * would, through the fast path and the slow one, whether the file is
+ * mapped, buffered or split into small reads, and that malformed input
+ * is reported at the right line and column.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+class CSVReaderTest {
+
+	//fields that take each branch of parseField, and some that look like they could
+	static final String[] EDGE_CASES = {
+			"0", "-0", "0.0", "-0.0", "+0", "1", "-1", "+7", ".5", "5.", "-.25", "00012.50",
+			"1e5", "1E5", "1e+5", "1e-5", "1.5e+3", "-2.5E-3", "1e0", "0e10", "1e22", "1e23", "1e-22",
+			"1e-23", "123456789012345", "1234567890123456", "12345678901234567890",
+			"0.1", "0.3", "0.30000000000000004", "3.141592653589793238462643", "9007199254740993",
+			"0.1000000000000000055511151231257827", "0.000000000000000000000000000001",
+			"4.9e-324", "2.2250738585072014E-308", "1.7976931348623157e308", "1e400", "-1e400",
+			"1e-400", "NaN", "Infinity", "-Infinity", "285216.65038593137", " 12.5 ", "\t3\r"};
+
+
+
+
+	/**
+	 * @param text - contents of a file
+	 * @param chunk - most bytes returned by one read, 0 for no limit
+	 * @return a reader of the text through the buffered path
+	 */
+	static CSVReader reader(String text, int chunk) {
+		ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+		if (chunk == 0) {
+			return new CSVReader(in);
+		}
+		return new CSVReader(new ReadableByteChannel() {
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				ByteBuffer part = dst.slice();
+				part.limit(Math.min(part.limit(), chunk));
+				int n = in.read(part);
+				if (n > 0) {
+					dst.position(dst.position() + n);
+				}
+				return n;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return in.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		});
+	}
+
+
+
+
+	/**
+	 * @param reader - reader of a single column
+	 * @return every value read after the labels
+	 */
+	static List<Double> column(CSVReader reader) throws IOException {
+		List<Double> values = new ArrayList<Double>();
+		reader.readLabels(1);
+		double[] row = new double[1];
+		while (reader.readRow(row)) {
+			values.add(row[0]);
+		}
+		return values;
+	}
+
+
+
+
+	/**
+	 * Reads each field in a column and compares its bits with
+	 * Double.parseDouble, with reads of every size.
+	 */
+	static void assertParsed(List<String> fields) throws IOException {
+		StringBuilder sb = new StringBuilder("Value\n");
+		for (String field: fields) {
+			sb.append(field).append('\n');
+		}
+		for (int chunk: new int[] {0, 1, 3, 7}) {
+			List<Double> values = column(reader(sb.toString(), chunk));
+			assertEquals(fields.size(), values.size(), "values read with reads of " + chunk);
+			for (int i=0; i<fields.size(); i++) {
+				assertEquals(Double.parseDouble(fields.get(i)), values.get(i).doubleValue(),
+						"\"" + fields.get(i) + "\" read with reads of " + chunk);
+			}
+		}
+	}
+
+
+
+
+	@Test
+	void parsesEdgeCasesLikeParseDouble() throws IOException {
+		assertParsed(List.of(EDGE_CASES));
+	}
+
+
+
+
+	@Test
+	void parsesRandomNumbersLikeParseDouble() throws IOException {
+		Random random = new Random(42);
+		List<String> fields = new ArrayList<String>();
+		for (int i=0; i<20000; i++) {
+			switch (i % 4) {
+			case 0:
+				//shortest text of any double, often 17 digits and an exponent
+				double d = Double.longBitsToDouble(random.nextLong());
+				fields.add(Double.toString(Double.isNaN(d) ? 1.0 : d));
+				break;
+			case 1:
+				//values of the size DANA_I writes
+				fields.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(12) - 3)));
+				break;
+			default:
+				//decimals of up to 20 digits, with and without exponents
+				StringBuilder sb = new StringBuilder(random.nextBoolean() ? "-" : "");
+				int digits = 1 + random.nextInt(20);
+				int point = random.nextInt(digits + 1);
+				for (int k=0; k<digits; k++) {
+					if (k == point) {
+						sb.append('.');
+					}
+					sb.append((char) ('0' + random.nextInt(10)));
+				}
+				if (i % 4 == 3) {
+					sb.append('e').append(random.nextInt(60) - 30);
+				}
+				fields.add(sb.toString());
+			}
+		}
+		assertParsed(fields);
+	}
+
+
+
+
+	@Test
+	void readsLabelsAndRows() throws IOException {
+		CSVReader reader = reader(" ,Area, Mean \n1,2.5,3\n\n4,5,6,\n", 0);
+		assertArrayEquals(new String[] {"", "Area", "Mean"}, reader.readLabels(3));
+		double[] row = new double[3];
+		assertTrue(reader.readRow(row));
+		assertEquals(2.5, row[1]);
+		assertTrue(reader.readRow(row), "blank line skipped");
+		assertEquals(4.0, row[0]);
+		assertEquals(6.0, row[2], "trailing empty field allowed");
+		assertFalse(reader.readRow(row));
+	}
+
+
+
+
+	@Test
+	void readsLastFieldWithoutNewline() throws IOException {
+		CSVReader reader = reader("a,b\n1,2\n3,4", 0);
+		reader.readLabels(2);
+		double[] row = new double[2];
+		assertTrue(reader.readRow(row));
+		assertTrue(reader.readRow(row));
+		assertEquals(3.0, row[0]);
+		assertEquals(4.0, row[1]);
+		assertFalse(reader.readRow(row));
+	}
+
+
+
+
+	@Test
+	void readsCRLF() throws IOException {
+		CSVReader reader = reader("a,b\r\n1,2.25\r\n\r\n3,4\r\n", 1);
+		assertArrayEquals(new String[] {"a", "b"}, reader.readLabels(2));
+		double[] row = new double[2];
+		assertTrue(reader.readRow(row));
+		assertEquals(2.25, row[1]);
+		assertTrue(reader.readRow(row));
+		assertEquals(4.0, row[1]);
+		assertFalse(reader.readRow(row));
+	}
+
+
+
+
+	@Test
+	void reportsEmptyFile() throws IOException {
+		CSVFormatException e = assertThrows(CSVFormatException.class, () -> reader("", 0).readLabels(2));
+		assertEquals(1, e.getLine());
+
+		CSVReader reader = reader("a,b\n", 0);
+		reader.readLabels(2);
+		assertFalse(reader.readRow(new double[2]), "no rows after the labels");
+	}
+
+
+
+
+	@Test
+	void reportsMalformedCell() throws IOException {
+		CSVReader reader = reader("a,b,c\n1,2,3\n4,x5,6\n", 0);
+		reader.readLabels(3);
+		double[] row = new double[3];
+		assertTrue(reader.readRow(row));
+		CSVFormatException e = assertThrows(CSVFormatException.class, () -> reader.readRow(row));
+		assertEquals(3, e.getLine());
+		assertEquals(2, e.getColumn());
+		assertTrue(e.getMessage().contains("\"x5\""), e.getMessage());
+	}
+
+
+
+
+	@Test
+	void reportsShortLongAndMissing() throws IOException {
+		double[] row = new double[3];
+		CSVReader shortRow = reader("a,b,c\n1,2\n", 0);
+		shortRow.readLabels(3);
+		CSVFormatException e = assertThrows(CSVFormatException.class, () -> shortRow.readRow(row));
+		assertEquals(2, e.getLine());
+		assertEquals(3, e.getColumn());
+
+		CSVReader longRow = reader("a,b,c\n1,2,3\n1,2,3,4\n", 0);
+		longRow.readLabels(3);
+		longRow.readRow(row);
+		e = assertThrows(CSVFormatException.class, () -> longRow.readRow(row));
+		assertEquals(3, e.getLine());
+		assertEquals(4, e.getColumn());
+
+		CSVReader missing = reader("a,b,c\n1, ,3\n", 0);
+		missing.readLabels(3);
+		e = assertThrows(CSVFormatException.class, () -> missing.readRow(row));
+		assertEquals(2, e.getLine());
+		assertEquals(2, e.getColumn());
+	}
+
+
+
+
+	@Test
+	void mappedAndBufferedFilesAgree() throws IOException {
+		File file = File.createTempFile("dana", ".csv");
+		file.deleteOnExit();
+		Random random = new Random(7);
+		StringBuilder sb = new StringBuilder("Value\n");
+		int rows = 0;
+		while (sb.length() < 2*CSVReader.MAP_MIN) {
+			sb.append(random.nextDouble() * 1e6).append('\n');
+			rows++;
+		}
+		Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+		List<Double> mapped;
+		List<Double> buffered;
+		try (CSVReader reader = new CSVReader(file, true)) {
+			assertTrue(reader.buffer instanceof java.nio.MappedByteBuffer, "file over MAP_MIN is mapped");
+			mapped = column(reader);
+		}
+		try (CSVReader reader = new CSVReader(file, false)) {
+			buffered = column(reader);
+		}
+		assertEquals(buffered, mapped);
+		assertEquals(rows, mapped.size());
+	}
+}
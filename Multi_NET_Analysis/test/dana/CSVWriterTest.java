@@ -0,0 +1,112 @@
+package dana;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that CSVWriter writes every number exactly as
+ * String.valueOf(double) does, on both sides of its whole number path,
+ * and text as PrintWriter would encode it.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+class CSVWriterTest {
+
+	//values at the edges of the whole number path and of Double.toString
+	static final double[] EDGE_CASES = {
+			0.0, -0.0, 1.0, -1.0, 0.5, -0.5, 1e-3, 9.99e-4, 1e-4, 0.1 + 0.2,
+			9999999.0, -9999999.0, 9999999.5, 1e7, -1e7, 1e7 + 1, 12345678.0, 1e15, 1e16, 1e17,
+			Long.MAX_VALUE, Long.MIN_VALUE, 9.223372036854776E18, 1e300, -1e300,
+			Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, -Double.MAX_VALUE,
+			Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 285216.65038593137};
+
+
+
+
+	/**
+	 * Writes each value followed by a comma and compares the file
+	 * with String.valueOf.
+	 */
+	static void assertWritten(double[] values) throws IOException {
+		File file = File.createTempFile("dana", ".csv");
+		file.deleteOnExit();
+		StringBuilder expected = new StringBuilder();
+		try (CSVWriter out = new CSVWriter(file)) {
+			for (double value: values) {
+				out.write(value);
+				out.write(',');
+				expected.append(String.valueOf(value)).append(',');
+			}
+		}
+		String written = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+		String[] fields = written.split(",", -1);
+		for (int i=0; i<values.length; i++) {
+			assertEquals(String.valueOf(values[i]), fields[i], "value " + i);
+		}
+		assertEquals(expected.toString(), written);
+	}
+
+
+
+
+	@Test
+	void writesEdgeCasesLikeToString() throws IOException {
+		assertWritten(EDGE_CASES);
+	}
+
+
+
+
+	@Test
+	void writesRandomNumbersLikeToString() throws IOException {
+		Random random = new Random(42);
+		//enough values to fill the buffer several times over
+		double[] values = new double[200000];
+		for (int i=0; i<values.length; i++) {
+			switch (i % 5) {
+			case 0:
+				values[i] = Double.longBitsToDouble(random.nextLong());
+				break;
+			case 1:
+				//whole numbers, as counts and pixel values are
+				values[i] = (double) (random.nextInt(20000000) - 10000000);
+				break;
+			case 2:
+				values[i] = Math.round(random.nextDouble() * 10000) / 100.0;
+				break;
+			case 3:
+				values[i] = random.nextDouble() * Math.pow(10, random.nextInt(20) - 5);
+				break;
+			default:
+				values[i] = -random.nextDouble() * 1e6;
+			}
+		}
+		assertWritten(values);
+	}
+
+
+
+
+	@Test
+	void writesTextLikePrintWriter() throws IOException {
+		File file = File.createTempFile("dana", ".csv");
+		file.deleteOnExit();
+		String text = "Area (\u00b5m\u00b2),Mean,NET (2.0x),";
+		try (CSVWriter out = new CSVWriter(file)) {
+			out.write(text);
+			out.write((String) null);
+			out.write('\n');
+		}
+		assertArrayEquals((text + "null\n").getBytes(Charset.defaultCharset()), Files.readAllBytes(file.toPath()));
+	}
+}
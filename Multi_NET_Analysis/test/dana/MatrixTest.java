@@ -0,0 +1,91 @@
+package dana;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks the cells of the per-image .csv output that are left blank.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+class MatrixTest {
+
+	static final String LABELS = " ,Area,Mean,Min,Max,Circ.,IntDen,RawIntDen,AR,Round,Solidity\n";
+
+
+
+
+	/**
+	 * Reads rows of input, classifies them with a lower cutoff of 1000
+	 * and an upper cutoff of 1,000,000, and writes the output.
+	 *
+	 * @param rows - input rows after the labels
+	 * @return the lines of the output
+	 */
+	static List<String> analyze(String rows) throws IOException {
+		File directory = Files.createTempDirectory("dana").toFile();
+		directory.deleteOnExit();
+		File input = new File(directory, "in.csv");
+		input.deleteOnExit();
+		Files.write(input.toPath(), (LABELS + rows).getBytes(StandardCharsets.US_ASCII));
+		Matrix m = new Matrix(input, "out.csv", false);
+		m.findOutliers(1000.0, 1000000.0);
+		m.update(100.0, 1.0, 2.0, 3.0, 4.0, 2.0, true, null);
+		m.createCSV(directory.getPath() + File.separator);
+		File output = new File(directory, "out.csv");
+		output.deleteOnExit();
+		return Files.readAllLines(output.toPath(), StandardCharsets.US_ASCII);
+	}
+
+
+
+
+	@Test
+	void blanksOnlyOutliersAndMissingCells() throws IOException {
+		List<String> lines = analyze("1,100,NaN,1,2,1,5,50000,1,1,1\n"
+				+ "2,50,10,1,2,1,5,100,1,1,1\n"
+				+ "3,300,10,1,2,1,5,10000000,1,1,1\n"
+				+ "4,110,10,1,2,1,5,NaN,1,1,1\n");
+
+		//a NaN read from the input is a value, as Double.toString writes it
+		String[] normal = lines.get(1).split(",", -1);
+		assertEquals("NaN", normal[2]);
+		assertEquals("50000.0", normal[11]);
+		assertEquals("1.0", normal[12]);
+		assertEquals("x", normal[13]);
+		assertEquals("", normal[14]);
+
+		//the NonOutliers and RelArea of outliers are blank
+		String[] fragment = lines.get(2).split(",", -1);
+		assertEquals("100.0", fragment[7]);
+		assertEquals("", fragment[11]);
+		assertEquals("", fragment[12]);
+		assertEquals("Fr", fragment[13]);
+		String[] multiple = lines.get(3).split(",", -1);
+		assertEquals("", multiple[11]);
+		assertEquals("", multiple[12]);
+		assertEquals("Mt", multiple[13]);
+
+		//a NaN RID is neither above nor below a cutoff
+		String[] noRID = lines.get(4).split(",", -1);
+		assertEquals("NaN", noRID[7]);
+		assertEquals("NaN", noRID[11]);
+		assertEquals("1.1", noRID[12]);
+
+		//rows past the last ROI are blank up to the averages column
+		String[] past = lines.get(5).split(",", -1);
+		for (int col=0; col<13; col++) {
+			assertEquals("", past[col], "column " + col);
+		}
+		assertEquals(" ", past[13]);
+	}
+}
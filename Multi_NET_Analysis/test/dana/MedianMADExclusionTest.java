@@ -0,0 +1,201 @@
+package dana;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks the median + k scaled MAD cutoff found from sketches against
+ * the one found by sorting every RID, on RIDs spread widely and on RIDs
+ * packed tightly around a large median, where 1% of the median is
+ * larger than the MAD.
+ *
+ * @author Ryan Rebernick
+ *
+ */
+class MedianMADExclusionTest {
+
+	static final double K = 1.5;
+	static final double SCALE = K*MedianMADExclusion.NORMAL_SCALE;
+
+
+
+
+	/**
+	 * @param rid - every RID, an odd number so the median is one of them
+	 * @return the median and the MAD, found by sorting
+	 */
+	static double[] exact(double[] rid) {
+		double[] sorted = rid.clone();
+		Arrays.sort(sorted);
+		double median = sorted[(sorted.length - 1) / 2];
+		double[] deviations = new double[sorted.length];
+		for (int i=0; i<sorted.length; i++) {
+			deviations[i] = Math.abs(sorted[i] - median);
+		}
+		Arrays.sort(deviations);
+		return new double[] {median, deviations[(deviations.length - 1) / 2]};
+	}
+
+
+
+
+	/**
+	 * The cutoff is within 1% of k scaled MADs, plus 0.01% of the median
+	 * for the error of the median and 0.02% of the median per scaled MAD.
+	 *
+	 * @param median - exact median
+	 * @param MAD - exact MAD
+	 * @return largest distance of the sketched cutoff from the exact one
+	 */
+	static double bound(double median, double MAD) {
+		return 0.01*SCALE*MAD + 0.0001*Math.abs(median) + 0.0002*SCALE*Math.abs(median);
+	}
+
+
+
+
+	/**
+	 * Sketches the RIDs split between files, as they are read, and finds
+	 * the cutoff from the merged sketches.
+	 */
+	static double sketched(double[] rid, int files) {
+		List<QuantileSketch> sketches = new ArrayList<QuantileSketch>();
+		QuantileSketch all = new QuantileSketch();
+		for (int f=0; f<files; f++) {
+			QuantileSketch sketch = new QuantileSketch();
+			for (int i=f; i<rid.length; i+=files) {
+				sketch.add(rid[i]);
+			}
+			sketches.add(sketch);
+			all.addAll(sketch);
+		}
+		double center = all.getMedian();
+		QuantileSketch deviations = new QuantileSketch();
+		for (int f=0; f<files; f++) {
+			QuantileSketch sketch = new QuantileSketch();
+			for (int i=f; i<rid.length; i+=files) {
+				sketch.add(rid[i] - center);
+			}
+			deviations.addAll(sketch);
+		}
+		return ExclusionStrategy.MEDIAN_MAD.upperCutoff(null, all, deviations, K);
+	}
+
+
+
+
+	/**
+	 * @param rid - every RID
+	 * @param files - number of files to split them between
+	 */
+	static void assertWithinBound(double[] rid, int files) {
+		double[] exact = exact(rid);
+		double expected = exact[0] + SCALE*exact[1];
+		double bound = bound(exact[0], exact[1]);
+		double cutoff = sketched(rid, files);
+		assertEquals(expected, cutoff, bound, "median " + exact[0] + ", MAD " + exact[1]);
+	}
+
+
+
+
+	@Test
+	void widelySpreadRIDs() {
+		//RIDs as SyntheticSample writes them, with a MAD near half the median
+		Random random = new Random(42);
+		double[] rid = new double[100001];
+		for (int i=0; i<rid.length; i++) {
+			double area = Math.exp(4.5 + 0.6*random.nextGaussian());
+			rid[i] = Math.round(area*(20 + 180*random.nextDouble())*(5 + 10*random.nextDouble()));
+		}
+		assertWithinBound(rid, 1);
+		assertWithinBound(rid, 37);
+	}
+
+
+
+
+	@Test
+	void tightRIDsAroundLargeMedian() {
+		//a MAD near 0.7% of the median, with 2% multiples of two to four cells
+		Random random = new Random(7);
+		double[] rid = new double[200001];
+		for (int i=0; i<rid.length; i++) {
+			rid[i] = 300000 + 3000*random.nextGaussian();
+			if (random.nextInt(50) == 0) {
+				rid[i] *= 2 + random.nextInt(3);
+			}
+		}
+		double[] exact = exact(rid);
+		//the bound is a few % of the MAD term, where 1% of the median is not
+		assertTrue(bound(exact[0], exact[1]) < 0.05*SCALE*exact[1]);
+		assertTrue(0.01*exact[0] > exact[1]);
+		assertWithinBound(rid, 1);
+		assertWithinBound(rid, 100);
+	}
+
+
+
+
+	@Test
+	void sketchesNegativeValues() {
+		QuantileSketch sketch = new QuantileSketch();
+		for (int i=-1000; i<=1000; i++) {
+			sketch.add(i);
+		}
+		sketch.add(Double.NaN);
+		assertEquals(2001, sketch.getCount());
+		assertEquals(-1000, sketch.getQuantile(0), 10);
+		assertEquals(-500, sketch.getQuantile(0.25), 5);
+		assertEquals(0, sketch.getMedian());
+		assertEquals(500, sketch.getQuantile(0.75), 5);
+		assertEquals(1000, sketch.getQuantile(1), 10);
+		assertEquals(500, sketch.getMAD(0), 5);
+	}
+
+
+
+
+	@Test
+	void findsCutoffFromFiles() throws IOException {
+		File directory = Files.createTempDirectory("dana").toFile();
+		directory.deleteOnExit();
+		Random random = new Random(11);
+		double[] rid = new double[3*2001];
+		List<Matrix> allFiles = new ArrayList<Matrix>();
+		for (int f=0; f<3; f++) {
+			StringBuilder sb = new StringBuilder(MatrixTest.LABELS);
+			for (int r=0; r<2001; r++) {
+				double value = Math.round(50000 + 400*random.nextGaussian());
+				rid[f*2001 + r] = value;
+				sb.append(r + 1).append(",100,10,1,2,1,5,").append(value).append(",1,1,1\n");
+			}
+			File input = new File(directory, "in" + f + ".csv");
+			input.deleteOnExit();
+			Files.write(input.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+			allFiles.add(new Matrix(input, input.getName(), false));
+		}
+		Multi_NET_Analysis engine = new Multi_NET_Analysis(
+				new AnalysisConfig(K, 1000.0, 1.0, 2.0, 3.0, 4.0, 2.0, "LPS", true, null)
+				.withExclusion(ExclusionStrategy.MEDIAN_MAD));
+
+		double[] exact = exact(rid);
+		assertEquals(exact[0] + SCALE*exact[1], engine.findCutoffs(allFiles), bound(exact[0], exact[1]));
+		for (Matrix m: allFiles) {
+			double[] own = exact(Arrays.copyOf(m.columns[7], m.getNumCells()));
+			assertEquals(own[0] + SCALE*own[1], engine.imageCutoff(m), bound(own[0], own[1]));
+		}
+	}
+}